@@ -0,0 +1,84 @@
+package dev.quantumfusion.zmenufix.logtool;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Objects;
+
+/**
+ * Writes RFC 4180 rows, one per log entry and one per fix event. Fix events only carry their closed count; use
+ * NDJSON when the individual players are needed.
+ */
+public final class CsvWriter implements EntryHandler {
+
+    private static final String HEADER =
+            "kind,timestamp,level,error_type,error_message,message,reason,closed,stacktrace";
+
+    private final Writer out;
+    private final boolean includeStacktraces;
+
+    public CsvWriter(Writer out, boolean includeStacktraces) {
+        this.out = Objects.requireNonNull(out, "out");
+        this.includeStacktraces = includeStacktraces;
+    }
+
+    public static void writeHeader(Writer out) throws IOException {
+        out.write(HEADER);
+        out.write("\r\n");
+    }
+
+    @Override
+    public void log(LogEntry entry) throws IOException {
+        out.write("log,");
+        out.write(HandledErrorsReader.LOG_LINE_FORMAT.format(entry.timestamp()));
+        out.write(',');
+        writeCell(entry.level());
+        out.write(',');
+        writeCell(entry.errorType());
+        out.write(',');
+        writeCell(entry.errorMessage());
+        out.write(',');
+        writeCell(entry.message());
+        out.write(",,,");
+        writeCell(includeStacktraces ? entry.stacktrace() : null);
+        out.write("\r\n");
+    }
+
+    @Override
+    public void fixStarted(FixEntry entry) throws IOException {
+        out.write("fix,");
+        out.write(HandledErrorsReader.LOG_LINE_FORMAT.format(entry.timestamp()));
+        out.write(",,,,,");
+        writeCell(entry.reason());
+        out.write(',');
+        out.write(Integer.toString(entry.closedCount()));
+        out.write(",\r\n");
+    }
+
+    @Override
+    public void fixPlayer(String uuid, String name) {
+        // players are not part of the CSV layout
+    }
+
+    @Override
+    public void fixFinished(FixEntry entry, boolean complete) {
+        // the row was written when the event started
+    }
+
+    private void writeCell(String value) throws IOException {
+        if (value == null || value.isEmpty()) {
+            return;
+        }
+        boolean quote = false;
+        for (int index = 0; index < value.length() && !quote; index++) {
+            char character = value.charAt(index);
+            quote = character == ',' || character == '"' || character == '\n' || character == '\r';
+        }
+        if (!quote) {
+            out.write(value);
+            return;
+        }
+        out.write('"');
+        out.write(value.replace("\"", "\"\""));
+        out.write('"');
+    }
+}
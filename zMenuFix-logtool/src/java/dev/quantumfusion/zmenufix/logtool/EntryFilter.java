@@ -0,0 +1,66 @@
+package dev.quantumfusion.zmenufix.logtool;
+
+import java.time.LocalDateTime;
+import java.util.Locale;
+import java.util.Objects;
+import java.util.Set;
+
+public final class EntryFilter {
+
+    private final LocalDateTime from;
+    private final LocalDateTime to;
+    private final Set<String> levels;
+    private final Set<String> errorTypes;
+    private final boolean includeLogs;
+    private final boolean includeFixes;
+
+    public EntryFilter(
+            LocalDateTime from,
+            LocalDateTime to,
+            Set<String> levels,
+            Set<String> errorTypes,
+            boolean includeLogs,
+            boolean includeFixes
+    ) {
+        this.from = from;
+        this.to = to;
+        this.levels = Objects.requireNonNull(levels, "levels");
+        this.errorTypes = Objects.requireNonNull(errorTypes, "errorTypes");
+        this.includeLogs = includeLogs;
+        this.includeFixes = includeFixes;
+    }
+
+    public boolean accepts(LogEntry entry) {
+        if (!includeLogs || !inRange(entry.timestamp())) {
+            return false;
+        }
+        if (!levels.isEmpty() && !levels.contains(entry.level().toUpperCase(Locale.ROOT))) {
+            return false;
+        }
+        return errorTypes.isEmpty() || matchesErrorType(entry.errorType());
+    }
+
+    public boolean accepts(FixEntry entry) {
+        return includeFixes && inRange(entry.timestamp());
+    }
+
+    private boolean inRange(LocalDateTime timestamp) {
+        if (from != null && timestamp.isBefore(from)) {
+            return false;
+        }
+        return to == null || timestamp.isBefore(to);
+    }
+
+    private boolean matchesErrorType(String errorType) {
+        if (errorType == null) {
+            return false;
+        }
+        for (String candidate : errorTypes) {
+            if (errorType.equals(candidate) || errorType.endsWith("." + candidate)
+                    || errorType.endsWith("$" + candidate)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,19 @@
+package dev.quantumfusion.zmenufix.logtool;
+
+import java.io.IOException;
+
+/**
+ * Receives entries in document order while a segment is streamed. Fix events are delivered as a start call, one
+ * call per {@code <player>} child and an end call, so a fix event with thousands of players never has to be held in
+ * memory.
+ */
+public interface EntryHandler {
+
+    void log(LogEntry entry) throws IOException;
+
+    void fixStarted(FixEntry entry) throws IOException;
+
+    void fixPlayer(String uuid, String name) throws IOException;
+
+    void fixFinished(FixEntry entry, boolean complete) throws IOException;
+}
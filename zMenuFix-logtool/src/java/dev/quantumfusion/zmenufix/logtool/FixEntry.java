@@ -0,0 +1,29 @@
+package dev.quantumfusion.zmenufix.logtool;
+
+import java.time.LocalDateTime;
+import java.util.Objects;
+
+public final class FixEntry {
+
+    private final LocalDateTime timestamp;
+    private final String reason;
+    private final int closedCount;
+
+    public FixEntry(LocalDateTime timestamp, String reason, int closedCount) {
+        this.timestamp = Objects.requireNonNull(timestamp, "timestamp");
+        this.reason = reason == null ? "" : reason;
+        this.closedCount = closedCount;
+    }
+
+    public LocalDateTime timestamp() {
+        return timestamp;
+    }
+
+    public String reason() {
+        return reason;
+    }
+
+    public int closedCount() {
+        return closedCount;
+    }
+}
@@ -0,0 +1,234 @@
+package dev.quantumfusion.zmenufix.logtool;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.Locale;
+import java.util.Objects;
+import java.util.zip.GZIPInputStream;
+import javax.xml.stream.Location;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+/**
+ * Streams one handled-errors segment with StAX. Mirrors the layout written by {@code XmlHandledErrorStore}:
+ * {@code <log timestamp level>} with {@code <message>}, optional {@code <error type message/>} and optional
+ * {@code <stacktrace>} children, and {@code <fix timestamp reason closed>} with {@code <player uuid name/>}
+ * children. Only the entry currently being read is held in memory.
+ */
+public final class HandledErrorsReader {
+
+    static final DateTimeFormatter LOG_LINE_FORMAT =
+            DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss.SSS", Locale.US);
+
+    private static final String ROOT_ELEMENT = "handled-errors";
+    private static final String LOG_ELEMENT = "log";
+    private static final String FIX_ELEMENT = "fix";
+
+    private final XMLInputFactory factory;
+    private final EntryFilter filter;
+
+    public HandledErrorsReader(EntryFilter filter) {
+        this.filter = Objects.requireNonNull(filter, "filter");
+        this.factory = XMLInputFactory.newFactory();
+        factory.setProperty(XMLInputFactory.IS_COALESCING, Boolean.TRUE);
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, Boolean.FALSE);
+        factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, Boolean.FALSE);
+    }
+
+    public SegmentResult read(Path segment, EntryHandler handler) throws IOException {
+        Objects.requireNonNull(segment, "segment");
+        Objects.requireNonNull(handler, "handler");
+
+        SegmentResult result = new SegmentResult(segment);
+        try (InputStream input = open(segment)) {
+            XMLStreamReader reader = factory.createXMLStreamReader(input);
+            try {
+                readDocument(reader, handler, result);
+            } finally {
+                reader.close();
+            }
+        } catch (XMLStreamException exception) {
+            Location location = exception.getLocation();
+            result.truncated = location == null
+                    ? exception.getMessage()
+                    : "line " + location.getLineNumber() + ", column " + location.getColumnNumber();
+        }
+        return result;
+    }
+
+    private void readDocument(XMLStreamReader reader, EntryHandler handler, SegmentResult result)
+            throws XMLStreamException, IOException {
+        FixEntry openFix = null;
+        boolean fixAccepted = false;
+        try {
+            while (reader.hasNext()) {
+                int event = reader.next();
+                if (event == XMLStreamConstants.START_ELEMENT) {
+                    String element = reader.getLocalName();
+                    if (LOG_ELEMENT.equals(element)) {
+                        LogEntry entry = readLog(reader, result);
+                        if (entry != null) {
+                            result.logEntries++;
+                            if (filter.accepts(entry)) {
+                                result.matched++;
+                                handler.log(entry);
+                            }
+                        }
+                    } else if (FIX_ELEMENT.equals(element)) {
+                        openFix = readFixHeader(reader, result);
+                        fixAccepted = openFix != null && filter.accepts(openFix);
+                        if (openFix != null) {
+                            result.fixEntries++;
+                        }
+                        if (fixAccepted) {
+                            result.matched++;
+                            handler.fixStarted(openFix);
+                        }
+                    } else if ("player".equals(element) && fixAccepted) {
+                        handler.fixPlayer(reader.getAttributeValue(null, "uuid"),
+                                reader.getAttributeValue(null, "name"));
+                    } else if (!ROOT_ELEMENT.equals(element) && openFix == null) {
+                        skipElement(reader);
+                    }
+                } else if (event == XMLStreamConstants.END_ELEMENT && FIX_ELEMENT.equals(reader.getLocalName())) {
+                    if (fixAccepted) {
+                        handler.fixFinished(openFix, true);
+                    }
+                    openFix = null;
+                    fixAccepted = false;
+                }
+            }
+        } catch (XMLStreamException exception) {
+            if (fixAccepted) {
+                handler.fixFinished(openFix, false);
+            }
+            throw exception;
+        }
+    }
+
+    private LogEntry readLog(XMLStreamReader reader, SegmentResult result) throws XMLStreamException {
+        LocalDateTime timestamp = parseTimestamp(reader.getAttributeValue(null, "timestamp"));
+        String level = reader.getAttributeValue(null, "level");
+        String message = null;
+        String errorType = null;
+        String errorMessage = null;
+        String stacktrace = null;
+
+        int depth = 1;
+        while (depth > 0) {
+            int event = reader.next();
+            if (event == XMLStreamConstants.START_ELEMENT) {
+                switch (reader.getLocalName()) {
+                    case "message" -> message = reader.getElementText();
+                    case "stacktrace" -> stacktrace = reader.getElementText();
+                    case "error" -> {
+                        errorType = reader.getAttributeValue(null, "type");
+                        errorMessage = reader.getAttributeValue(null, "message");
+                        depth++;
+                    }
+                    default -> depth++;
+                }
+            } else if (event == XMLStreamConstants.END_ELEMENT) {
+                depth--;
+            }
+        }
+
+        if (timestamp == null || level == null) {
+            result.malformed++;
+            return null;
+        }
+        return new LogEntry(timestamp, level, message, errorType, errorMessage, stacktrace);
+    }
+
+    private FixEntry readFixHeader(XMLStreamReader reader, SegmentResult result) {
+        LocalDateTime timestamp = parseTimestamp(reader.getAttributeValue(null, "timestamp"));
+        if (timestamp == null) {
+            result.malformed++;
+            return null;
+        }
+        int closed;
+        try {
+            closed = Integer.parseInt(reader.getAttributeValue(null, "closed"));
+        } catch (NumberFormatException exception) {
+            closed = 0;
+        }
+        return new FixEntry(timestamp, reader.getAttributeValue(null, "reason"), closed);
+    }
+
+    private static void skipElement(XMLStreamReader reader) throws XMLStreamException {
+        int depth = 1;
+        while (depth > 0) {
+            int event = reader.next();
+            if (event == XMLStreamConstants.START_ELEMENT) {
+                depth++;
+            } else if (event == XMLStreamConstants.END_ELEMENT) {
+                depth--;
+            }
+        }
+    }
+
+    private static LocalDateTime parseTimestamp(String value) {
+        if (value == null) {
+            return null;
+        }
+        try {
+            return LocalDateTime.parse(value, LOG_LINE_FORMAT);
+        } catch (DateTimeParseException exception) {
+            return null;
+        }
+    }
+
+    private static InputStream open(Path segment) throws IOException {
+        InputStream input = new BufferedInputStream(Files.newInputStream(segment), 64 * 1024);
+        if (segment.getFileName().toString().endsWith(".gz")) {
+            return new GZIPInputStream(input, 64 * 1024);
+        }
+        return input;
+    }
+
+    public static final class SegmentResult {
+
+        private final Path segment;
+        private long logEntries;
+        private long fixEntries;
+        private long matched;
+        private long malformed;
+        private String truncated;
+
+        private SegmentResult(Path segment) {
+            this.segment = segment;
+        }
+
+        public Path segment() {
+            return segment;
+        }
+
+        public long logEntries() {
+            return logEntries;
+        }
+
+        public long fixEntries() {
+            return fixEntries;
+        }
+
+        public long matched() {
+            return matched;
+        }
+
+        public long malformed() {
+            return malformed;
+        }
+
+        public String truncated() {
+            return truncated;
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package dev.quantumfusion.zmenufix.logtool;
+
+import java.time.LocalDateTime;
+import java.util.Objects;
+
+public final class LogEntry {
+
+    private final LocalDateTime timestamp;
+    private final String level;
+    private final String message;
+    private final String errorType;
+    private final String errorMessage;
+    private final String stacktrace;
+
+    public LogEntry(
+            LocalDateTime timestamp,
+            String level,
+            String message,
+            String errorType,
+            String errorMessage,
+            String stacktrace
+    ) {
+        this.timestamp = Objects.requireNonNull(timestamp, "timestamp");
+        this.level = Objects.requireNonNull(level, "level");
+        this.message = message;
+        this.errorType = errorType;
+        this.errorMessage = errorMessage;
+        this.stacktrace = stacktrace;
+    }
+
+    public LocalDateTime timestamp() {
+        return timestamp;
+    }
+
+    public String level() {
+        return level;
+    }
+
+    public String message() {
+        return message;
+    }
+
+    public String errorType() {
+        return errorType;
+    }
+
+    public String errorMessage() {
+        return errorMessage;
+    }
+
+    public String stacktrace() {
+        return stacktrace;
+    }
+}
@@ -0,0 +1,349 @@
+package dev.quantumfusion.zmenufix.logtool;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintStream;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeFormatterBuilder;
+import java.time.format.DateTimeParseException;
+import java.time.temporal.ChronoField;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+public final class LogToolMain {
+
+    private static final DateTimeFormatter BOUND_FORMAT = new DateTimeFormatterBuilder()
+            .appendPattern("yyyy-MM-dd")
+            .optionalStart().appendPattern(" HH:mm")
+            .optionalStart().appendPattern(":ss")
+            .optionalStart().appendPattern(".SSS")
+            .optionalEnd().optionalEnd().optionalEnd()
+            .parseDefaulting(ChronoField.HOUR_OF_DAY, 0)
+            .toFormatter(Locale.US);
+
+    private static final String USAGE = String.join(System.lineSeparator(),
+            "Usage: java -jar ZMenuFix-logtool.jar <summary|ndjson|csv> [options] <file-or-directory>...",
+            "",
+            "Streams handled-errors.xml segments (plain or .gz) in constant memory. Directories are expanded to",
+            "their *.xml and *.xml.gz files in name order; segments are parsed in parallel and emitted in order.",
+            "",
+            "Options:",
+            "  --from <time>       keep entries at or after <time> (yyyy-MM-dd[ HH:mm[:ss[.SSS]]])",
+            "  --to <time>         keep entries before <time>",
+            "  --level <L,...>     keep log entries with one of these levels (e.g. SEVERE,WARNING)",
+            "  --type <T,...>      keep log entries whose error type is, or ends with, one of these names",
+            "  --kind <log|fix|all>  entry kinds to keep (default: all, or log when --level/--type is given)",
+            "  --output <file>     write ndjson/csv output to <file> instead of stdout",
+            "  --threads <n>       worker threads (default: number of processors)",
+            "  --top <n>           error types listed in the summary (default: 20)",
+            "  --no-stacktraces    omit stack traces from ndjson/csv output");
+
+    private LogToolMain() {
+    }
+
+    public static void main(String[] args) {
+        int status;
+        try {
+            status = run(args, System.out, System.err);
+        } catch (IllegalArgumentException exception) {
+            System.err.println(exception.getMessage());
+            System.err.println();
+            System.err.println(USAGE);
+            status = 2;
+        } catch (IOException | UncheckedIOException exception) {
+            System.err.println("I/O error: " + exception.getMessage());
+            status = 1;
+        }
+        System.exit(status);
+    }
+
+    static int run(String[] args, PrintStream out, PrintStream err) throws IOException {
+        if (args.length == 0 || "--help".equals(args[0]) || "-h".equals(args[0])) {
+            out.println(USAGE);
+            return 0;
+        }
+
+        String mode = args[0].toLowerCase(Locale.ROOT);
+        if (!mode.equals("summary") && !mode.equals("ndjson") && !mode.equals("csv")) {
+            throw new IllegalArgumentException("Unknown mode '" + args[0] + "'.");
+        }
+
+        LocalDateTime from = null;
+        LocalDateTime to = null;
+        Set<String> levels = new LinkedHashSet<>();
+        Set<String> errorTypes = new LinkedHashSet<>();
+        String kind = null;
+        Path output = null;
+        int threads = Runtime.getRuntime().availableProcessors();
+        int top = 20;
+        boolean includeStacktraces = true;
+        List<Path> inputs = new ArrayList<>();
+
+        for (int index = 1; index < args.length; index++) {
+            String argument = args[index];
+            switch (argument) {
+                case "--from" -> from = parseBound(value(args, ++index, argument));
+                case "--to" -> to = parseBound(value(args, ++index, argument));
+                case "--level" -> splitList(value(args, ++index, argument), levels, true);
+                case "--type" -> splitList(value(args, ++index, argument), errorTypes, false);
+                case "--kind" -> kind = value(args, ++index, argument).toLowerCase(Locale.ROOT);
+                case "--output" -> output = Paths.get(value(args, ++index, argument));
+                case "--threads" -> threads = parsePositive(value(args, ++index, argument), argument);
+                case "--top" -> top = parsePositive(value(args, ++index, argument), argument);
+                case "--no-stacktraces" -> includeStacktraces = false;
+                default -> {
+                    if (argument.startsWith("--")) {
+                        throw new IllegalArgumentException("Unknown option '" + argument + "'.");
+                    }
+                    inputs.add(Paths.get(argument));
+                }
+            }
+        }
+        if (kind == null) {
+            kind = levels.isEmpty() && errorTypes.isEmpty() ? "all" : "log";
+        } else if (!kind.equals("all") && !kind.equals("log") && !kind.equals("fix")) {
+            throw new IllegalArgumentException("--kind must be log, fix or all.");
+        }
+
+        List<Path> segments = expandSegments(inputs);
+        if (segments.isEmpty()) {
+            throw new IllegalArgumentException("No input segments found.");
+        }
+
+        EntryFilter filter = new EntryFilter(from, to, levels, errorTypes,
+                !kind.equals("fix"), !kind.equals("log"));
+        HandledErrorsReader reader = new HandledErrorsReader(filter);
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(threads, segments.size()), runnable -> {
+            Thread thread = new Thread(runnable, "logtool-worker");
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            List<HandledErrorsReader.SegmentResult> results = mode.equals("summary")
+                    ? summarize(reader, segments, executor, out, top)
+                    : convert(reader, segments, executor, mode, output, out, includeStacktraces);
+            return report(results, err);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static List<HandledErrorsReader.SegmentResult> summarize(
+            HandledErrorsReader reader,
+            List<Path> segments,
+            ExecutorService executor,
+            PrintStream out,
+            int top
+    ) throws IOException {
+        HandledErrorsReader.SegmentResult[] results = new HandledErrorsReader.SegmentResult[segments.size()];
+        List<Future<Summary>> partials = new ArrayList<>();
+        for (int index = 0; index < segments.size(); index++) {
+            int slot = index;
+            partials.add(executor.submit(() -> {
+                Summary partial = new Summary();
+                results[slot] = reader.read(segments.get(slot), partial);
+                return partial;
+            }));
+        }
+
+        Summary total = new Summary();
+        for (Future<Summary> partial : partials) {
+            total.merge(await(partial));
+        }
+        out.println("Segments: " + segments.size());
+        total.print(out, top);
+        return List.of(results);
+    }
+
+    private static List<HandledErrorsReader.SegmentResult> convert(
+            HandledErrorsReader reader,
+            List<Path> segments,
+            ExecutorService executor,
+            String mode,
+            Path output,
+            PrintStream out,
+            boolean includeStacktraces
+    ) throws IOException {
+        Function<Writer, EntryHandler> handlerFactory = mode.equals("csv")
+                ? writer -> new CsvWriter(writer, includeStacktraces)
+                : writer -> new NdjsonWriter(writer, includeStacktraces);
+        Path spoolDirectory = output == null ? null : output.toAbsolutePath().getParent();
+
+        List<Future<SpooledSegment>> spooled = new ArrayList<>();
+        for (Path segment : segments) {
+            spooled.add(executor.submit(() -> {
+                Path spool = spoolDirectory == null
+                        ? Files.createTempFile("logtool-", ".part")
+                        : Files.createTempFile(spoolDirectory, "logtool-", ".part");
+                try (Writer writer = Files.newBufferedWriter(spool, StandardCharsets.UTF_8)) {
+                    return new SpooledSegment(spool, reader.read(segment, handlerFactory.apply(writer)));
+                } catch (IOException | RuntimeException exception) {
+                    Files.deleteIfExists(spool);
+                    throw exception;
+                }
+            }));
+        }
+
+        List<HandledErrorsReader.SegmentResult> results = new ArrayList<>();
+        try (Writer writer = output == null
+                ? new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8))
+                : Files.newBufferedWriter(output, StandardCharsets.UTF_8)) {
+            if (mode.equals("csv")) {
+                CsvWriter.writeHeader(writer);
+            }
+            for (int index = 0; index < spooled.size(); index++) {
+                SpooledSegment segment;
+                try {
+                    segment = await(spooled.get(index));
+                } catch (IOException exception) {
+                    discardRemaining(spooled, index + 1);
+                    throw exception;
+                }
+                try (Reader input = Files.newBufferedReader(segment.spool, StandardCharsets.UTF_8)) {
+                    input.transferTo(writer);
+                } finally {
+                    Files.deleteIfExists(segment.spool);
+                }
+                results.add(segment.result);
+            }
+        }
+        return results;
+    }
+
+    private static int report(List<HandledErrorsReader.SegmentResult> results, PrintStream err) {
+        int status = 0;
+        for (HandledErrorsReader.SegmentResult result : results) {
+            if (result.truncated() != null) {
+                err.println("warning: " + result.segment() + " ends early or is damaged at " + result.truncated()
+                        + "; entries before that point were processed.");
+                status = 1;
+            }
+            if (result.malformed() > 0L) {
+                err.println("warning: skipped " + result.malformed() + " malformed entr"
+                        + (result.malformed() == 1L ? "y" : "ies") + " in " + result.segment() + ".");
+            }
+        }
+        return status;
+    }
+
+    private static List<Path> expandSegments(List<Path> inputs) throws IOException {
+        List<Path> segments = new ArrayList<>();
+        for (Path input : inputs) {
+            if (Files.isDirectory(input)) {
+                try (Stream<Path> children = Files.list(input)) {
+                    children.filter(Files::isRegularFile)
+                            .filter(path -> {
+                                String name = path.getFileName().toString();
+                                return name.endsWith(".xml") || name.endsWith(".xml.gz");
+                            })
+                            .sorted()
+                            .forEach(segments::add);
+                }
+            } else if (Files.isRegularFile(input)) {
+                segments.add(input);
+            } else {
+                throw new IllegalArgumentException("Input not found: " + input);
+            }
+        }
+        return segments;
+    }
+
+    private static void discardRemaining(List<Future<SpooledSegment>> spooled, int from) {
+        for (int index = from; index < spooled.size(); index++) {
+            try {
+                Files.deleteIfExists(await(spooled.get(index)).spool);
+            } catch (IOException ignored) {
+                // best effort cleanup
+            }
+        }
+    }
+
+    private static <T> T await(Future<T> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for a worker.", exception);
+        } catch (ExecutionException exception) {
+            Throwable cause = exception.getCause();
+            if (cause instanceof IOException ioException) {
+                throw ioException;
+            }
+            if (cause instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new IOException(cause);
+        }
+    }
+
+    private static LocalDateTime parseBound(String value) {
+        try {
+            return LocalDateTime.parse(value, BOUND_FORMAT);
+        } catch (DateTimeParseException exception) {
+            try {
+                return LocalDateTime.of(LocalDate.parse(value), LocalTime.MIDNIGHT);
+            } catch (DateTimeParseException ignored) {
+                throw new IllegalArgumentException("Invalid time '" + value + "'.");
+            }
+        }
+    }
+
+    private static int parsePositive(String value, String option) {
+        try {
+            int parsed = Integer.parseInt(value);
+            if (parsed > 0) {
+                return parsed;
+            }
+        } catch (NumberFormatException ignored) {
+            // reported below
+        }
+        throw new IllegalArgumentException(option + " expects a positive number.");
+    }
+
+    private static void splitList(String value, Set<String> target, boolean upperCase) {
+        for (String part : value.split(",")) {
+            String trimmed = part.trim();
+            if (!trimmed.isEmpty()) {
+                target.add(upperCase ? trimmed.toUpperCase(Locale.ROOT) : trimmed);
+            }
+        }
+    }
+
+    private static String value(String[] args, int index, String option) {
+        if (index >= args.length) {
+            throw new IllegalArgumentException(option + " expects a value.");
+        }
+        return args[index];
+    }
+
+    private static final class SpooledSegment {
+
+        private final Path spool;
+        private final HandledErrorsReader.SegmentResult result;
+
+        private SpooledSegment(Path spool, HandledErrorsReader.SegmentResult result) {
+            this.spool = spool;
+            this.result = result;
+        }
+    }
+}
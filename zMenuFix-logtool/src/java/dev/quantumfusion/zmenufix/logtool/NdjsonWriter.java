@@ -0,0 +1,105 @@
+package dev.quantumfusion.zmenufix.logtool;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Objects;
+
+/**
+ * Writes one JSON object per line. Fix events are streamed: the object is opened on {@code <fix>}, players are
+ * appended to its {@code players} array as they are read, and the object is closed on {@code </fix>}.
+ */
+public final class NdjsonWriter implements EntryHandler {
+
+    private final Writer out;
+    private final boolean includeStacktraces;
+    private boolean firstPlayer;
+
+    public NdjsonWriter(Writer out, boolean includeStacktraces) {
+        this.out = Objects.requireNonNull(out, "out");
+        this.includeStacktraces = includeStacktraces;
+    }
+
+    @Override
+    public void log(LogEntry entry) throws IOException {
+        out.write("{\"kind\":\"log\",\"timestamp\":");
+        writeString(HandledErrorsReader.LOG_LINE_FORMAT.format(entry.timestamp()));
+        out.write(",\"level\":");
+        writeString(entry.level());
+        writeField("message", entry.message());
+        writeField("errorType", entry.errorType());
+        writeField("errorMessage", entry.errorMessage());
+        if (includeStacktraces) {
+            writeField("stacktrace", entry.stacktrace());
+        }
+        out.write("}\n");
+    }
+
+    @Override
+    public void fixStarted(FixEntry entry) throws IOException {
+        out.write("{\"kind\":\"fix\",\"timestamp\":");
+        writeString(HandledErrorsReader.LOG_LINE_FORMAT.format(entry.timestamp()));
+        writeField("reason", entry.reason());
+        out.write(",\"closed\":");
+        out.write(Integer.toString(entry.closedCount()));
+        out.write(",\"players\":[");
+        firstPlayer = true;
+    }
+
+    @Override
+    public void fixPlayer(String uuid, String name) throws IOException {
+        if (!firstPlayer) {
+            out.write(',');
+        }
+        firstPlayer = false;
+        out.write("{\"uuid\":");
+        writeString(uuid);
+        out.write(",\"name\":");
+        writeString(name);
+        out.write('}');
+    }
+
+    @Override
+    public void fixFinished(FixEntry entry, boolean complete) throws IOException {
+        out.write(']');
+        if (!complete) {
+            out.write(",\"truncated\":true");
+        }
+        out.write("}\n");
+    }
+
+    private void writeField(String name, String value) throws IOException {
+        if (value == null) {
+            return;
+        }
+        out.write(",\"");
+        out.write(name);
+        out.write("\":");
+        writeString(value);
+    }
+
+    private void writeString(String value) throws IOException {
+        if (value == null) {
+            out.write("null");
+            return;
+        }
+        out.write('"');
+        for (int index = 0; index < value.length(); index++) {
+            char character = value.charAt(index);
+            switch (character) {
+                case '"' -> out.write("\\\"");
+                case '\\' -> out.write("\\\\");
+                case '\n' -> out.write("\\n");
+                case '\r' -> out.write("\\r");
+                case '\t' -> out.write("\\t");
+                default -> {
+                    if (character < 0x20) {
+                        out.write(String.format("\\u%04x", (int) character));
+                    } else {
+                        out.write(character);
+                    }
+                }
+            }
+        }
+        out.write('"');
+    }
+}
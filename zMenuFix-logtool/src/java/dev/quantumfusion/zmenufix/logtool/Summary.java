@@ -0,0 +1,145 @@
+package dev.quantumfusion.zmenufix.logtool;
+
+import java.io.PrintStream;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Histogram accumulator for one segment. Workers fill their own instance and the results are merged afterwards, so
+ * no counter is ever shared between threads.
+ */
+public final class Summary implements EntryHandler {
+
+    private static final int BAR_WIDTH = 40;
+
+    private final Map<String, Long> byLevel = new TreeMap<>();
+    private final Map<String, Long> byErrorType = new HashMap<>();
+    private final Map<LocalDate, Long> byDay = new TreeMap<>();
+    private final long[] byHourOfDay = new long[24];
+    private final Map<String, Long> fixesByReason = new TreeMap<>();
+
+    private long logEntries;
+    private long fixEvents;
+    private long playersClosed;
+    private LocalDateTime earliest;
+    private LocalDateTime latest;
+
+    @Override
+    public void log(LogEntry entry) {
+        logEntries++;
+        byLevel.merge(entry.level(), 1L, Long::sum);
+        byErrorType.merge(entry.errorType() == null ? "(none)" : entry.errorType(), 1L, Long::sum);
+        countTimestamp(entry.timestamp());
+    }
+
+    @Override
+    public void fixStarted(FixEntry entry) {
+        fixEvents++;
+        playersClosed += entry.closedCount();
+        fixesByReason.merge(entry.reason(), 1L, Long::sum);
+        countTimestamp(entry.timestamp());
+    }
+
+    @Override
+    public void fixPlayer(String uuid, String name) {
+        // the closed attribute already carries the count
+    }
+
+    @Override
+    public void fixFinished(FixEntry entry, boolean complete) {
+        // nothing to finalize
+    }
+
+    public void merge(Summary other) {
+        other.byLevel.forEach((key, value) -> byLevel.merge(key, value, Long::sum));
+        other.byErrorType.forEach((key, value) -> byErrorType.merge(key, value, Long::sum));
+        other.byDay.forEach((key, value) -> byDay.merge(key, value, Long::sum));
+        other.fixesByReason.forEach((key, value) -> fixesByReason.merge(key, value, Long::sum));
+        for (int hour = 0; hour < byHourOfDay.length; hour++) {
+            byHourOfDay[hour] += other.byHourOfDay[hour];
+        }
+        logEntries += other.logEntries;
+        fixEvents += other.fixEvents;
+        playersClosed += other.playersClosed;
+        if (other.earliest != null && (earliest == null || other.earliest.isBefore(earliest))) {
+            earliest = other.earliest;
+        }
+        if (other.latest != null && (latest == null || other.latest.isAfter(latest))) {
+            latest = other.latest;
+        }
+    }
+
+    public void print(PrintStream out, int topErrorTypes) {
+        out.println("Matched " + logEntries + " log entr" + (logEntries == 1L ? "y" : "ies") + " and " + fixEvents
+                + " fix event(s) closing " + playersClosed + " inventory view(s).");
+        if (earliest != null) {
+            out.println("Range: " + HandledErrorsReader.LOG_LINE_FORMAT.format(earliest) + " .. "
+                    + HandledErrorsReader.LOG_LINE_FORMAT.format(latest));
+        }
+
+        printHistogram(out, "By level", byLevel);
+
+        List<Map.Entry<String, Long>> types = new ArrayList<>(byErrorType.entrySet());
+        types.sort(Map.Entry.<String, Long>comparingByValue().reversed().thenComparing(Map.Entry.comparingByKey()));
+        Map<String, Long> topTypes = new LinkedHashMap<>();
+        for (Map.Entry<String, Long> entry : types.subList(0, Math.min(topErrorTypes, types.size()))) {
+            topTypes.put(entry.getKey(), entry.getValue());
+        }
+        String typeTitle = "By error type";
+        if (types.size() > topTypes.size()) {
+            typeTitle += " (top " + topTypes.size() + " of " + types.size() + ")";
+        }
+        printHistogram(out, typeTitle, topTypes);
+
+        Map<String, Long> days = new LinkedHashMap<>();
+        byDay.forEach((day, count) -> days.put(day.toString(), count));
+        printHistogram(out, "By day", days);
+
+        Map<String, Long> hours = new LinkedHashMap<>();
+        for (int hour = 0; hour < byHourOfDay.length; hour++) {
+            hours.put(String.format("%02d:00", hour), byHourOfDay[hour]);
+        }
+        printHistogram(out, "By hour of day", hours);
+
+        printHistogram(out, "Fix events by reason", fixesByReason);
+    }
+
+    private void countTimestamp(LocalDateTime timestamp) {
+        byDay.merge(timestamp.toLocalDate(), 1L, Long::sum);
+        byHourOfDay[timestamp.getHour()]++;
+        if (earliest == null || timestamp.isBefore(earliest)) {
+            earliest = timestamp;
+        }
+        if (latest == null || timestamp.isAfter(latest)) {
+            latest = timestamp;
+        }
+    }
+
+    private static void printHistogram(PrintStream out, String title, Map<String, Long> counts) {
+        out.println();
+        out.println(title + ":");
+        if (counts.isEmpty()) {
+            out.println("  (none)");
+            return;
+        }
+        int labelWidth = 1;
+        long max = 0L;
+        for (Map.Entry<String, Long> entry : counts.entrySet()) {
+            labelWidth = Math.max(labelWidth, entry.getKey().length());
+            max = Math.max(max, entry.getValue());
+        }
+        for (Map.Entry<String, Long> entry : counts.entrySet()) {
+            int bar = max == 0L ? 0 : (int) Math.round((double) entry.getValue() * BAR_WIDTH / max);
+            if (bar == 0 && entry.getValue() > 0L) {
+                bar = 1;
+            }
+            out.printf("  %-" + labelWidth + "s %10d %s%n", entry.getKey(), entry.getValue(), "#".repeat(bar));
+        }
+    }
+}
@@ -0,0 +1,157 @@
+package dev.quantumfusion.zmenufix.logtool;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.zip.GZIPOutputStream;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class HandledErrorsReaderTest {
+
+    private static final String DOCUMENT = """
+            <?xml version="1.0" encoding="UTF-8"?>
+            <handled-errors>
+              <log timestamp="2024-05-01 10:00:00.000" level="WARNING"><message>first</message></log>
+              <log timestamp="2024-05-02 11:30:00.000" level="SEVERE"><message>second</message><error \
+            type="java.lang.IllegalStateException" message="boom"/><stacktrace><![CDATA[at a.B]]></stacktrace></log>
+              <fix timestamp="2024-05-02 11:30:01.000" reason="PluginDisableEvent" closed="2">
+                <player uuid="00000000-0000-0000-0000-000000000001" name="Alex"/>
+                <player name="Steve"/>
+              </fix>
+              <log timestamp="not a timestamp" level="INFO"><message>broken</message></log>
+            </handled-errors>
+            """;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void streamsLogAndFixEntries() throws IOException {
+        Path segment = write("handled-errors.xml", DOCUMENT);
+        RecordingHandler handler = new RecordingHandler();
+
+        HandledErrorsReader.SegmentResult result = reader(null, null, Set.of(), Set.of()).read(segment, handler);
+
+        assertNull(result.truncated());
+        assertEquals(2L, result.logEntries());
+        assertEquals(1L, result.fixEntries());
+        assertEquals(3L, result.matched());
+        assertEquals(1L, result.malformed());
+        assertEquals(List.of(
+                "log WARNING first",
+                "log SEVERE second java.lang.IllegalStateException",
+                "fix PluginDisableEvent 2",
+                "player 00000000-0000-0000-0000-000000000001 Alex",
+                "player null Steve",
+                "end PluginDisableEvent complete"), handler.events);
+    }
+
+    @Test
+    void appliesTimeLevelAndTypeFilters() throws IOException {
+        Path segment = write("handled-errors.xml", DOCUMENT);
+        RecordingHandler handler = new RecordingHandler();
+
+        HandledErrorsReader.SegmentResult result = reader(LocalDateTime.of(2024, 5, 2, 0, 0), null,
+                Set.of("SEVERE"), Set.of("IllegalStateException")).read(segment, handler);
+
+        assertEquals(2L, result.matched());
+        assertEquals("log SEVERE second java.lang.IllegalStateException", handler.events.get(0));
+        assertEquals("fix PluginDisableEvent 2", handler.events.get(1));
+    }
+
+    @Test
+    void reportsTruncatedSegmentAndClosesTheOpenFix() throws IOException {
+        String truncated = DOCUMENT.substring(0, DOCUMENT.indexOf("<player name=\"Steve\"/>"));
+        Path segment = write("handled-errors.xml", truncated);
+        RecordingHandler handler = new RecordingHandler();
+
+        HandledErrorsReader.SegmentResult result = reader(null, null, Set.of(), Set.of()).read(segment, handler);
+
+        assertNotNull(result.truncated());
+        assertTrue(result.truncated().startsWith("line "), result.truncated());
+        assertEquals(2L, result.logEntries());
+        assertEquals("end PluginDisableEvent partial", handler.events.get(handler.events.size() - 1));
+    }
+
+    @Test
+    void readsGzipSegments() throws IOException {
+        Path segment = directory.resolve("handled-errors.xml.gz");
+        try (OutputStream output = new GZIPOutputStream(Files.newOutputStream(segment))) {
+            output.write(DOCUMENT.getBytes(StandardCharsets.UTF_8));
+        }
+        RecordingHandler handler = new RecordingHandler();
+
+        HandledErrorsReader.SegmentResult result = reader(null, null, Set.of(), Set.of()).read(segment, handler);
+
+        assertNull(result.truncated());
+        assertEquals(2L, result.logEntries());
+        assertEquals(1L, result.fixEntries());
+        assertEquals(6, handler.events.size());
+    }
+
+    @Test
+    void reportsTruncatedGzipSegment() throws IOException {
+        Path complete = directory.resolve("complete.xml.gz");
+        try (OutputStream output = new GZIPOutputStream(Files.newOutputStream(complete))) {
+            output.write(DOCUMENT.getBytes(StandardCharsets.UTF_8));
+        }
+        byte[] compressed = Files.readAllBytes(complete);
+        Path segment = directory.resolve("handled-errors.xml.gz");
+        Files.write(segment, Arrays.copyOf(compressed, compressed.length / 2));
+        RecordingHandler handler = new RecordingHandler();
+
+        HandledErrorsReader.SegmentResult result = reader(null, null, Set.of(), Set.of()).read(segment, handler);
+
+        assertNotNull(result.truncated());
+        assertFalse(handler.events.contains("end PluginDisableEvent complete"));
+    }
+
+    private Path write(String name, String content) throws IOException {
+        return Files.writeString(directory.resolve(name), content, StandardCharsets.UTF_8);
+    }
+
+    private static HandledErrorsReader reader(LocalDateTime from, LocalDateTime to, Set<String> levels,
+                                              Set<String> errorTypes) {
+        return new HandledErrorsReader(new EntryFilter(from, to, levels, errorTypes, true, true));
+    }
+
+    private static final class RecordingHandler implements EntryHandler {
+
+        private final List<String> events = new ArrayList<>();
+
+        @Override
+        public void log(LogEntry entry) {
+            events.add("log " + entry.level() + " " + entry.message()
+                    + (entry.errorType() == null ? "" : " " + entry.errorType()));
+        }
+
+        @Override
+        public void fixStarted(FixEntry entry) {
+            events.add("fix " + entry.reason() + " " + entry.closedCount());
+        }
+
+        @Override
+        public void fixPlayer(String uuid, String name) {
+            events.add("player " + uuid + " " + name);
+        }
+
+        @Override
+        public void fixFinished(FixEntry entry, boolean complete) {
+            events.add("end " + entry.reason() + (complete ? " complete" : " partial"));
+        }
+    }
+}
@@ -1,14 +1,25 @@
 package dev.quantumfusion.zmenufix;
 
+import dev.quantumfusion.zmenufix.command.ZMenuFixCommand;
 import dev.quantumfusion.zmenufix.config.ZMenuFixConfiguration;
+import dev.quantumfusion.zmenufix.logging.FlightRecorder;
 import dev.quantumfusion.zmenufix.logging.ZMenuFixFileLogger;
+import dev.quantumfusion.zmenufix.scheduler.MainThreadDispatcher;
+import dev.quantumfusion.zmenufix.scheduler.PlatformScheduler;
+import dev.quantumfusion.zmenufix.service.ClassLoaderLeakDetector;
+import dev.quantumfusion.zmenufix.service.ClosePassWatchdog;
+import dev.quantumfusion.zmenufix.service.InventoryCloseTelemetry;
+import dev.quantumfusion.zmenufix.service.ReloadTimeline;
 import dev.quantumfusion.zmenufix.service.ZMenuLifecycleListener;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.lang.ref.WeakReference;
 import java.lang.reflect.Field;
 import java.lang.reflect.Method;
 import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Objects;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicReference;
@@ -16,6 +27,7 @@ import java.util.regex.Pattern;
 import java.util.logging.Level;
 import org.bukkit.Bukkit;
 import org.bukkit.command.ConsoleCommandSender;
+import org.bukkit.command.PluginCommand;
 import org.bukkit.configuration.file.FileConfiguration;
 import org.bukkit.plugin.Plugin;
 import org.bukkit.plugin.PluginManager;
@@ -39,13 +51,23 @@ public final class ZMenuFixPlugin extends JavaPlugin {
         new BannerGlyph(9, "███   ███", " ███ ███ ", "  ████", " ███ ███ ", "███   ███")
     };
     private static final String[] BANNER_LINES = composeBanner();
+    private static final String FOLIALIB_PACKAGE = "fr.maxlego08.menu.hooks.folialib";
+    private static final List<String> FOLIALIB_IMPLEMENTATIONS =
+            List.of("FoliaImplementation", "PaperImplementation", "SpigotImplementation", "LegacySpigotImplementation");
 
     private final AtomicBoolean zMenuDetected = new AtomicBoolean(false);
-    private final AtomicReference<Plugin> bridgedSchedulerFor = new AtomicReference<>();
+    private final PlatformScheduler scheduler = new PlatformScheduler(this);
+    private final AtomicReference<WeakReference<Plugin>> bridgedSchedulerFor = new AtomicReference<>();
 
     private ZMenuFixConfiguration configuration;
     private ZMenuFixFileLogger fileLogger;
     private ZMenuLifecycleListener lifecycleListener;
+    private InventoryCloseTelemetry closeTelemetry;
+    private volatile MainThreadDispatcher dispatcher;
+    private ClassLoaderLeakDetector leakDetector;
+    private ClosePassWatchdog closeWatchdog;
+    private FlightRecorder flightRecorder = FlightRecorder.disabled();
+    private ReloadTimeline reloadTimeline = ReloadTimeline.disabled();
 
     @Override
     public void onEnable() {
@@ -68,6 +90,14 @@ public final class ZMenuFixPlugin extends JavaPlugin {
         this.fileLogger = new ZMenuFixFileLogger(this, configuration.logging());
         logStartupBanner();
         fileLogger.info("ZMenuFix boot sequence initialized.");
+        openFlightRecorder(dataFolder);
+
+        PluginCommand command = getCommand("zmenufix");
+        if (command != null) {
+            ZMenuFixCommand executor = new ZMenuFixCommand(this);
+            command.setExecutor(executor);
+            command.setTabCompleter(executor);
+        }
 
         if (!configuration.enabled()) {
             getLogger().warning("ZMenuFix is disabled via configuration. Functionality will remain idle.");
@@ -75,9 +105,29 @@ public final class ZMenuFixPlugin extends JavaPlugin {
             return;
         }
 
+        this.dispatcher = new MainThreadDispatcher(this, fileLogger, configuration.fix().dispatchTickBudgetMillis());
+        dispatcher.start();
+
+        if (configuration.diagnostics().stallWatchdog()) {
+            this.closeWatchdog = new ClosePassWatchdog(configuration.diagnostics(), fileLogger);
+        }
+
+        if (configuration.diagnostics().leakDetection()) {
+            this.leakDetector = new ClassLoaderLeakDetector(this, configuration.diagnostics(), fileLogger);
+            leakDetector.start();
+        }
+
+        if (configuration.diagnostics().reloadTimeline()) {
+            this.reloadTimeline = new ReloadTimeline(configuration.diagnostics().reloadHistorySize());
+        }
+
         PluginManager pluginManager = getServer().getPluginManager();
         this.lifecycleListener = new ZMenuLifecycleListener(this, configuration, fileLogger, zMenuDetected);
         pluginManager.registerEvents(lifecycleListener, this);
+        if (configuration.debug()) {
+            this.closeTelemetry = new InventoryCloseTelemetry(this, configuration.telemetry(), fileLogger);
+            closeTelemetry.start();
+        }
 
         Plugin zMenu = pluginManager.getPlugin("zMenu");
         if (zMenu != null && zMenu.isEnabled()) {
@@ -93,6 +143,29 @@ public final class ZMenuFixPlugin extends JavaPlugin {
 
     @Override
     public void onDisable() {
+        flightRecorder.record(FlightRecorder.EventType.ZMENUFIX_DISABLED, null);
+        flightRecorder.force();
+        if (dispatcher != null) {
+            dispatcher.shutdown();
+            dispatcher = null;
+        }
+        if (lifecycleListener != null) {
+            lifecycleListener.flushPendingWork();
+        }
+        if (closeTelemetry != null) {
+            closeTelemetry.stop();
+            closeTelemetry = null;
+        }
+        if (closeWatchdog != null) {
+            closeWatchdog.shutdown();
+            closeWatchdog = null;
+        }
+        if (leakDetector != null) {
+            leakDetector.stop();
+            leakDetector = null;
+        }
+        flightRecorder.close();
+        flightRecorder = FlightRecorder.disabled();
         if (fileLogger != null) {
             fileLogger.info("ZMenuFix shutdown sequence started.");
             fileLogger.shutdown();
@@ -117,6 +190,23 @@ public final class ZMenuFixPlugin extends JavaPlugin {
         return Objects.requireNonNull(fileLogger, "fileLogger");
     }
 
+    public ClosePassWatchdog.Session armCloseWatchdog(String reason) {
+        ClosePassWatchdog current = closeWatchdog;
+        return current == null ? ClosePassWatchdog.inactive() : current.arm(reason);
+    }
+
+    public PlatformScheduler scheduler() {
+        return scheduler;
+    }
+
+    public FlightRecorder flightRecorder() {
+        return flightRecorder;
+    }
+
+    public ReloadTimeline reloadTimeline() {
+        return reloadTimeline;
+    }
+
     public void executeOnPrimaryThread(Runnable task) {
         Objects.requireNonNull(task, "task");
         boolean shouldGuard = configuration != null && configuration.fix().asyncGuard();
@@ -125,12 +215,39 @@ public final class ZMenuFixPlugin extends JavaPlugin {
             return;
         }
 
-        if (!isEnabled()) {
-            task.run();
+        MainThreadDispatcher current = dispatcher;
+        if (current != null && current.submit(task)) {
             return;
         }
+        if (current == null && isEnabled()) {
+            // the dispatcher only runs while the fix is enabled; commands still need to reach the primary thread
+            scheduler.runLater(task, 0L);
+            return;
+        }
+        if (fileLogger != null) {
+            fileLogger.warn("Rejected off-thread task because ZMenuFix is disabling.");
+        }
+    }
 
-        Bukkit.getScheduler().runTask(this, task);
+    public MainThreadDispatcher.Stats dispatcherStats() {
+        MainThreadDispatcher current = dispatcher;
+        return current == null ? null : current.stats();
+    }
+
+    public boolean isZMenuDetected() {
+        return zMenuDetected.get();
+    }
+
+    public boolean isSchedulerBridged() {
+        return bridgedPlugin() != null;
+    }
+
+    public boolean isServerStopping() {
+        try {
+            return Bukkit.isStopping();
+        } catch (NoSuchMethodError ignored) {
+            return false;
+        }
     }
 
     public boolean isDebug() {
@@ -144,13 +261,13 @@ public final class ZMenuFixPlugin extends JavaPlugin {
             return;
         }
 
-        Plugin current = bridgedSchedulerFor.get();
-        if (current == zMenuPlugin) {
+        if (bridgedPlugin() == zMenuPlugin) {
+            reloadTimeline.mark(ReloadTimeline.Phase.BRIDGE_REAPPLIED);
             return;
         }
 
         try {
-            Object implementation = locateFoliaSpigotImplementation(zMenuPlugin);
+            Object implementation = locateFoliaLibImplementation(zMenuPlugin);
             if (implementation == null) {
                 fileLogger.warn("Unable to locate zMenu FoliaLib implementation for scheduler bridge.");
                 return;
@@ -164,14 +281,17 @@ public final class ZMenuFixPlugin extends JavaPlugin {
 
             Plugin existing = (Plugin) pluginField.get(implementation);
             if (existing == this) {
-                bridgedSchedulerFor.set(zMenuPlugin);
+                bridgedSchedulerFor.set(new WeakReference<>(zMenuPlugin));
+                reloadTimeline.mark(ReloadTimeline.Phase.BRIDGE_REAPPLIED);
                 fileLogger.debug("Folia scheduler bridge already active for zMenu.");
                 return;
             }
 
             pluginField.set(implementation, this);
-            bridgedSchedulerFor.set(zMenuPlugin);
-            fileLogger.info("Patched zMenu Folia scheduler to execute tasks under ZMenuFix context.");
+            bridgedSchedulerFor.set(new WeakReference<>(zMenuPlugin));
+            reloadTimeline.mark(ReloadTimeline.Phase.BRIDGE_REAPPLIED);
+            fileLogger.info("Patched zMenu " + implementation.getClass().getSimpleName()
+                    + " to schedule tasks under ZMenuFix context.");
         } catch (ReflectiveOperationException exception) {
             fileLogger.error("Failed to bridge zMenu Folia scheduler to ZMenuFix.", exception);
         }
@@ -181,7 +301,43 @@ public final class ZMenuFixPlugin extends JavaPlugin {
         if (zMenuPlugin == null) {
             return;
         }
-        bridgedSchedulerFor.compareAndSet(zMenuPlugin, null);
+        WeakReference<Plugin> current = bridgedSchedulerFor.get();
+        if (current != null && (current.get() == zMenuPlugin || current.get() == null)
+                && bridgedSchedulerFor.compareAndSet(current, null)) {
+            reloadTimeline.mark(ReloadTimeline.Phase.BRIDGE_CLEARED);
+        }
+    }
+
+    public void releaseZMenuReferences(Plugin zMenuPlugin) {
+        if (zMenuPlugin == null) {
+            return;
+        }
+        clearSchedulerBridge(zMenuPlugin);
+        if (closeTelemetry != null) {
+            closeTelemetry.forget(zMenuPlugin.getClass().getClassLoader());
+        }
+        if (leakDetector != null) {
+            leakDetector.watch(zMenuPlugin);
+        }
+    }
+
+    private Plugin bridgedPlugin() {
+        WeakReference<Plugin> current = bridgedSchedulerFor.get();
+        return current == null ? null : current.get();
+    }
+
+    private void openFlightRecorder(File dataFolder) {
+        ZMenuFixConfiguration.FlightRecorderSettings settings = configuration.flightRecorder();
+        if (!settings.enabled()) {
+            return;
+        }
+        try {
+            flightRecorder = FlightRecorder.open(dataFolder.toPath().resolve(settings.file()),
+                    settings.sizeKilobytes() * 1024L);
+            flightRecorder.record(FlightRecorder.EventType.ZMENUFIX_ENABLED, getDescription().getVersion());
+        } catch (IOException exception) {
+            fileLogger.error("Unable to open flight recorder file, recording disabled.", exception);
+        }
     }
 
     private void ensureConfigurationFile(File dataFolder) throws IOException {
@@ -211,14 +367,20 @@ public final class ZMenuFixPlugin extends JavaPlugin {
         return lines;
     }
 
-    private Object locateFoliaSpigotImplementation(Plugin zMenuPlugin) throws ReflectiveOperationException {
+    private Object locateFoliaLibImplementation(Plugin zMenuPlugin) throws ReflectiveOperationException {
         ClassLoader classLoader = zMenuPlugin.getClass().getClassLoader();
-        Class<?> foliaLibClass = Class.forName("fr.maxlego08.menu.hooks.folialib.FoliaLib", false, classLoader);
-        Class<?> implementationClass = Class.forName(
-                "fr.maxlego08.menu.hooks.folialib.impl.SpigotImplementation",
-                false,
-                classLoader
-        );
+        Class<?> foliaLibClass = Class.forName(FOLIALIB_PACKAGE + ".FoliaLib", false, classLoader);
+        List<Class<?>> implementationClasses = new ArrayList<>();
+        for (String name : FOLIALIB_IMPLEMENTATIONS) {
+            try {
+                implementationClasses.add(Class.forName(FOLIALIB_PACKAGE + ".impl." + name, false, classLoader));
+            } catch (ClassNotFoundException ignored) {
+                // older zMenu builds do not ship every implementation
+            }
+        }
+        if (implementationClasses.isEmpty()) {
+            return null;
+        }
 
         for (Field field : foliaLibClass.getDeclaredFields()) {
             if (!Modifier.isStatic(field.getModifiers())) {
@@ -228,7 +390,7 @@ public final class ZMenuFixPlugin extends JavaPlugin {
                 continue;
             }
             Object value = field.get(null);
-            if (value != null && implementationClass.isInstance(value)) {
+            if (isImplementation(value, implementationClasses)) {
                 return value;
             }
         }
@@ -237,14 +399,14 @@ public final class ZMenuFixPlugin extends JavaPlugin {
             if (!Modifier.isStatic(method.getModifiers()) || method.getParameterCount() != 0) {
                 continue;
             }
-            if (!implementationClass.isAssignableFrom(method.getReturnType())) {
+            if (!isImplementationType(method.getReturnType(), implementationClasses)) {
                 continue;
             }
             if (!method.trySetAccessible()) {
                 continue;
             }
             Object value = method.invoke(null);
-            if (value != null && implementationClass.isInstance(value)) {
+            if (isImplementation(value, implementationClasses)) {
                 return value;
             }
         }
@@ -273,20 +435,17 @@ public final class ZMenuFixPlugin extends JavaPlugin {
 
             if (getter != null) {
                 Object implementation = getter.invoke(possibleFoliaLib);
-                if (implementation != null && implementationClass.isInstance(implementation)) {
+                if (isImplementation(implementation, implementationClasses)) {
                     return implementation;
                 }
             }
 
             for (Field innerField : possibleFoliaLib.getClass().getDeclaredFields()) {
-                if (!implementationClass.isAssignableFrom(innerField.getType())) {
-                    continue;
-                }
                 if (!innerField.trySetAccessible()) {
                     continue;
                 }
                 Object implementation = innerField.get(possibleFoliaLib);
-                if (implementation != null) {
+                if (isImplementation(implementation, implementationClasses)) {
                     return implementation;
                 }
             }
@@ -295,16 +454,40 @@ public final class ZMenuFixPlugin extends JavaPlugin {
         return null;
     }
 
-    private Field findPluginField(Object implementation) {
-        Class<?> implementationClass = implementation.getClass();
-        for (Field field : implementationClass.getDeclaredFields()) {
-            if (!Plugin.class.isAssignableFrom(field.getType())) {
-                continue;
+    private static boolean isImplementation(Object value, List<Class<?>> implementationClasses) {
+        if (value == null) {
+            return false;
+        }
+        for (Class<?> implementationClass : implementationClasses) {
+            if (implementationClass.isInstance(value)) {
+                return true;
             }
-            if (!field.trySetAccessible()) {
-                continue;
+        }
+        return false;
+    }
+
+    private static boolean isImplementationType(Class<?> type, List<Class<?>> implementationClasses) {
+        for (Class<?> implementationClass : implementationClasses) {
+            if (implementationClass.isAssignableFrom(type) || type.isAssignableFrom(implementationClass)
+                    && type != Object.class) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private Field findPluginField(Object implementation) {
+        for (Class<?> type = implementation.getClass(); type != null && type != Object.class;
+             type = type.getSuperclass()) {
+            for (Field field : type.getDeclaredFields()) {
+                if (Modifier.isStatic(field.getModifiers()) || !Plugin.class.isAssignableFrom(field.getType())) {
+                    continue;
+                }
+                if (!field.trySetAccessible()) {
+                    continue;
+                }
+                return field;
             }
-            return field;
         }
         return null;
     }
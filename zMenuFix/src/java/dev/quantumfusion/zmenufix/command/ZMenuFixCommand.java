@@ -0,0 +1,207 @@
+package dev.quantumfusion.zmenufix.command;
+
+import dev.quantumfusion.zmenufix.ZMenuFixPlugin;
+import dev.quantumfusion.zmenufix.logging.FlightRecorder;
+import dev.quantumfusion.zmenufix.scheduler.MainThreadDispatcher;
+import dev.quantumfusion.zmenufix.scheduler.PlatformScheduler;
+import dev.quantumfusion.zmenufix.service.ReloadTimeline;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Objects;
+import org.bukkit.ChatColor;
+import org.bukkit.command.Command;
+import org.bukkit.command.CommandSender;
+import org.bukkit.command.TabExecutor;
+
+public final class ZMenuFixCommand implements TabExecutor {
+
+    private static final DateTimeFormatter DUMP_FILE_FORMAT =
+            DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss", Locale.US);
+    private static final DateTimeFormatter CYCLE_TIME_FORMAT =
+            DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss", Locale.US).withZone(ZoneId.systemDefault());
+    private static final List<String> SUBCOMMANDS = List.of("status", "flightrecorder", "timeline");
+
+    private final ZMenuFixPlugin plugin;
+
+    public ZMenuFixCommand(ZMenuFixPlugin plugin) {
+        this.plugin = Objects.requireNonNull(plugin, "plugin");
+    }
+
+    @Override
+    public boolean onCommand(CommandSender sender, Command command, String label, String[] args) {
+        if (args.length == 0) {
+            sender.sendMessage(ChatColor.YELLOW + "Usage: /" + label + " <" + String.join("|", SUBCOMMANDS) + ">");
+            return true;
+        }
+
+        switch (args[0].toLowerCase(Locale.ROOT)) {
+            case "status" -> showStatus(sender);
+            case "flightrecorder" -> dumpFlightRecorder(sender);
+            case "timeline" -> {
+                if (args.length > 1 && args[1].equalsIgnoreCase("export")) {
+                    exportReloadTimeline(sender);
+                } else {
+                    showReloadTimeline(sender);
+                }
+            }
+            default -> sender.sendMessage(ChatColor.RED + "Unknown subcommand '" + args[0] + "'.");
+        }
+        return true;
+    }
+
+    @Override
+    public List<String> onTabComplete(CommandSender sender, Command command, String label, String[] args) {
+        List<String> matches = new ArrayList<>();
+        if (args.length == 2 && args[0].equalsIgnoreCase("timeline")
+                && "export".startsWith(args[1].toLowerCase(Locale.ROOT))) {
+            matches.add("export");
+            return matches;
+        }
+        if (args.length != 1) {
+            return matches;
+        }
+        String prefix = args[0].toLowerCase(Locale.ROOT);
+        for (String subcommand : SUBCOMMANDS) {
+            if (subcommand.startsWith(prefix)) {
+                matches.add(subcommand);
+            }
+        }
+        return matches;
+    }
+
+    private void showStatus(CommandSender sender) {
+        sender.sendMessage(ChatColor.YELLOW + "ZMenuFix " + plugin.getDescription().getVersion() + " on "
+                + (PlatformScheduler.isFolia() ? "Folia" : "Paper/Spigot") + ChatColor.GRAY + " (fix "
+                + (plugin.configuration().enabled() ? "enabled" : "disabled") + ")");
+        sender.sendMessage(ChatColor.GRAY + "  zMenu: " + ChatColor.WHITE
+                + (plugin.isZMenuDetected() ? "enabled" : "not enabled")
+                + ChatColor.GRAY + ", scheduler bridge: " + ChatColor.WHITE
+                + (plugin.isSchedulerBridged() ? "active" : "inactive"));
+
+        MainThreadDispatcher.Stats stats = plugin.dispatcherStats();
+        sender.sendMessage(ChatColor.GRAY + "  Dispatcher: " + ChatColor.WHITE
+                + (stats == null ? "not running" : stats.toString()));
+
+        ReloadTimeline timeline = plugin.reloadTimeline();
+        sender.sendMessage(ChatColor.GRAY + "  Flight recorder: " + ChatColor.WHITE
+                + (plugin.flightRecorder().enabled() ? "recording" : "off")
+                + ChatColor.GRAY + ", reload timeline: " + ChatColor.WHITE
+                + (timeline.enabled() ? timeline.cycles().size() + " cycle(s)" : "off"));
+    }
+
+    private void dumpFlightRecorder(CommandSender sender) {
+        FlightRecorder recorder = plugin.flightRecorder();
+        if (!recorder.enabled()) {
+            sender.sendMessage(ChatColor.RED + "The flight recorder is disabled (flight_recorder.enabled).");
+            return;
+        }
+
+        Path target = plugin.getDataFolder().toPath()
+                .resolve("flight-recorder-" + DUMP_FILE_FORMAT.format(LocalDateTime.now()) + ".xml");
+        sender.sendMessage(ChatColor.GRAY + "Decoding flight recorder...");
+        plugin.scheduler().runAsync(() -> {
+            String reply;
+            try {
+                recorder.dump(target);
+                reply = ChatColor.GREEN + "Flight recorder written to " + target.getFileName() + ".";
+            } catch (IOException exception) {
+                plugin.fileLogger().error("Failed to decode flight recorder.", exception);
+                reply = ChatColor.RED + "Failed to decode flight recorder: " + exception.getMessage();
+            }
+            String message = reply;
+            plugin.executeOnPrimaryThread(() -> sender.sendMessage(message));
+        });
+    }
+
+    private void showReloadTimeline(CommandSender sender) {
+        ReloadTimeline timeline = plugin.reloadTimeline();
+        if (!timeline.enabled()) {
+            sender.sendMessage(ChatColor.RED + "The reload timeline is disabled (diagnostics.reload_timeline).");
+            return;
+        }
+
+        List<ReloadTimeline.Cycle> cycles = timeline.cycles();
+        if (cycles.isEmpty()) {
+            sender.sendMessage(ChatColor.GRAY + "No zMenu reload cycle has completed yet.");
+            return;
+        }
+
+        sender.sendMessage(ChatColor.YELLOW + "zMenu reload downtime over the last " + cycles.size()
+                + " cycle(s) (p50 / p90 / p99 / max):");
+        sender.sendMessage(formatDistribution("total downtime", timeline.totalDowntime()));
+        for (ReloadTimeline.Span span : ReloadTimeline.Span.values()) {
+            sender.sendMessage(formatDistribution(span.label(), timeline.distribution(span)));
+        }
+        int bridgeSkipped = timeline.bridgeSkippedCount();
+        if (bridgeSkipped > 0) {
+            sender.sendMessage(ChatColor.GRAY + "  bridge re-apply skipped in " + bridgeSkipped
+                    + " cycle(s); their downtime ends at enable received");
+        }
+
+        ReloadTimeline.Cycle last = cycles.get(cycles.size() - 1);
+        StringBuilder phases = new StringBuilder();
+        for (ReloadTimeline.Phase phase : ReloadTimeline.Phase.values()) {
+            if (!last.has(phase)) {
+                continue;
+            }
+            if (phases.length() > 0) {
+                phases.append(", ");
+            }
+            phases.append(phase.label()).append(" +").append(formatMillis(last.offset(phase)));
+        }
+        if (last.bridgeSkipped()) {
+            phases.append(", ").append(ReloadTimeline.Phase.BRIDGE_REAPPLIED.label()).append(" skipped");
+        }
+        sender.sendMessage(ChatColor.YELLOW + "Last cycle #" + last.id() + " at "
+                + CYCLE_TIME_FORMAT.format(Instant.ofEpochMilli(last.startedAtMillis())) + ": "
+                + ChatColor.GRAY + phases);
+    }
+
+    private void exportReloadTimeline(CommandSender sender) {
+        ReloadTimeline timeline = plugin.reloadTimeline();
+        if (!timeline.enabled()) {
+            sender.sendMessage(ChatColor.RED + "The reload timeline is disabled (diagnostics.reload_timeline).");
+            return;
+        }
+
+        Path target = plugin.getDataFolder().toPath()
+                .resolve("reload-timeline-" + DUMP_FILE_FORMAT.format(LocalDateTime.now()) + ".json");
+        sender.sendMessage(ChatColor.GRAY + "Exporting reload timeline...");
+        plugin.scheduler().runAsync(() -> {
+            String reply;
+            try {
+                timeline.exportChromeTrace(target);
+                reply = ChatColor.GREEN + "Reload timeline written to " + target.getFileName()
+                        + " (open it in chrome://tracing or ui.perfetto.dev).";
+            } catch (IOException exception) {
+                plugin.fileLogger().error("Failed to export reload timeline.", exception);
+                reply = ChatColor.RED + "Failed to export reload timeline: " + exception.getMessage();
+            }
+            String message = reply;
+            plugin.executeOnPrimaryThread(() -> sender.sendMessage(message));
+        });
+    }
+
+    private static String formatDistribution(String label, ReloadTimeline.Distribution distribution) {
+        if (distribution.count() == 0) {
+            return ChatColor.GRAY + "  " + label + ": no samples";
+        }
+        return ChatColor.GRAY + "  " + label + ": " + ChatColor.WHITE
+                + formatMillis(distribution.percentileNanos(50.0D)) + " / "
+                + formatMillis(distribution.percentileNanos(90.0D)) + " / "
+                + formatMillis(distribution.percentileNanos(99.0D)) + " / "
+                + formatMillis(distribution.maxNanos())
+                + ChatColor.GRAY + " (" + distribution.count() + ")";
+    }
+
+    private static String formatMillis(long nanos) {
+        return String.format(Locale.US, "%.2f ms", nanos / 1_000_000.0D);
+    }
+}
@@ -1,5 +1,6 @@
 package dev.quantumfusion.zmenufix.config;
 
+import java.util.Locale;
 import java.util.Objects;
 import org.bukkit.configuration.ConfigurationSection;
 import org.bukkit.configuration.file.FileConfiguration;
@@ -10,6 +11,9 @@ public final class ZMenuFixConfiguration {
     private final boolean debug;
     private final LoggingSettings logging;
     private final FixSettings fix;
+    private final TelemetrySettings telemetry;
+    private final DiagnosticsSettings diagnostics;
+    private final FlightRecorderSettings flightRecorder;
 
     public ZMenuFixConfiguration(FileConfiguration configuration) {
         Objects.requireNonNull(configuration, "configuration");
@@ -17,6 +21,9 @@ public final class ZMenuFixConfiguration {
         this.debug = configuration.getBoolean("debug", false);
         this.logging = new LoggingSettings(configuration.getConfigurationSection("log"));
         this.fix = new FixSettings(configuration.getConfigurationSection("fix"));
+        this.telemetry = new TelemetrySettings(configuration.getConfigurationSection("telemetry"));
+        this.diagnostics = new DiagnosticsSettings(configuration.getConfigurationSection("diagnostics"));
+        this.flightRecorder = new FlightRecorderSettings(configuration.getConfigurationSection("flight_recorder"));
     }
 
     public boolean enabled() {
@@ -35,29 +42,51 @@ public final class ZMenuFixConfiguration {
         return fix;
     }
 
+    public TelemetrySettings telemetry() {
+        return telemetry;
+    }
+
+    public DiagnosticsSettings diagnostics() {
+        return diagnostics;
+    }
+
+    public FlightRecorderSettings flightRecorder() {
+        return flightRecorder;
+    }
+
     public static final class LoggingSettings {
 
         private final boolean enabled;
+        private final String backend;
         private final String file;
         private final boolean includeStacktraces;
+        private final DatabaseSettings database;
 
         public LoggingSettings(ConfigurationSection section) {
             if (section == null) {
                 this.enabled = true;
+                this.backend = "xml";
                 this.file = "handled-errors.xml";
                 this.includeStacktraces = false;
+                this.database = new DatabaseSettings(null);
                 return;
             }
 
             this.enabled = section.getBoolean("enabled", true);
+            this.backend = section.getString("backend", "xml").trim().toLowerCase(Locale.ROOT);
             this.file = section.getString("file", "handled-errors.xml");
             this.includeStacktraces = section.getBoolean("include_stacktraces", false);
+            this.database = new DatabaseSettings(section.getConfigurationSection("database"));
         }
 
         public boolean enabled() {
             return enabled;
         }
 
+        public String backend() {
+            return backend;
+        }
+
         public String file() {
             return file;
         }
@@ -65,6 +94,49 @@ public final class ZMenuFixConfiguration {
         public boolean includeStacktraces() {
             return includeStacktraces;
         }
+
+        public DatabaseSettings database() {
+            return database;
+        }
+    }
+
+    public static final class DatabaseSettings {
+
+        private final String file;
+        private final int batchSize;
+        private final long flushIntervalMillis;
+        private final int retentionDays;
+
+        public DatabaseSettings(ConfigurationSection section) {
+            if (section == null) {
+                this.file = "handled-errors";
+                this.batchSize = 256;
+                this.flushIntervalMillis = 1000L;
+                this.retentionDays = 90;
+                return;
+            }
+
+            this.file = section.getString("file", "handled-errors");
+            this.batchSize = Math.max(1, section.getInt("batch_size", 256));
+            this.flushIntervalMillis = Math.max(50L, section.getLong("flush_interval_ms", 1000L));
+            this.retentionDays = Math.max(0, section.getInt("retention_days", 90));
+        }
+
+        public String file() {
+            return file;
+        }
+
+        public int batchSize() {
+            return batchSize;
+        }
+
+        public long flushIntervalMillis() {
+            return flushIntervalMillis;
+        }
+
+        public int retentionDays() {
+            return retentionDays;
+        }
     }
 
     public static final class FixSettings {
@@ -75,6 +147,10 @@ public final class ZMenuFixConfiguration {
         private final boolean rebindFoliaScheduler;
         private final boolean notifyPlayers;
         private final String notifyMessage;
+        private final long dispatchTickBudgetMillis;
+        private final boolean adaptiveClose;
+        private final double closeCostSmoothing;
+        private final int closeFollowUpMaxTicks;
 
         public FixSettings(ConfigurationSection section) {
             if (section == null) {
@@ -84,6 +160,10 @@ public final class ZMenuFixConfiguration {
                 this.rebindFoliaScheduler = true;
                 this.notifyPlayers = false;
                 this.notifyMessage = "&eYour menu was closed due to zMenu restart.";
+                this.dispatchTickBudgetMillis = 2L;
+                this.adaptiveClose = true;
+                this.closeCostSmoothing = 0.3D;
+                this.closeFollowUpMaxTicks = 5;
                 return;
             }
 
@@ -93,6 +173,10 @@ public final class ZMenuFixConfiguration {
             this.rebindFoliaScheduler = section.getBoolean("rebind_folia_scheduler", true);
             this.notifyPlayers = section.getBoolean("notify_players", false);
             this.notifyMessage = section.getString("notify_message", "&eYour menu was closed due to zMenu restart.");
+            this.dispatchTickBudgetMillis = Math.max(1L, section.getLong("dispatch_tick_budget_ms", 2L));
+            this.adaptiveClose = section.getBoolean("adaptive_close", true);
+            this.closeCostSmoothing = Math.max(0.01D, Math.min(1.0D, section.getDouble("close_cost_smoothing", 0.3D)));
+            this.closeFollowUpMaxTicks = Math.max(1, section.getInt("close_follow_up_max_ticks", 5));
         }
 
         public boolean closeOnZMenuDisable() {
@@ -118,5 +202,152 @@ public final class ZMenuFixConfiguration {
         public String notifyMessage() {
             return notifyMessage;
         }
+
+        public long dispatchTickBudgetMillis() {
+            return dispatchTickBudgetMillis;
+        }
+
+        public boolean adaptiveClose() {
+            return adaptiveClose;
+        }
+
+        public double closeCostSmoothing() {
+            return closeCostSmoothing;
+        }
+
+        public int closeFollowUpMaxTicks() {
+            return closeFollowUpMaxTicks;
+        }
+    }
+
+    public static final class TelemetrySettings {
+
+        private final int flushIntervalSeconds;
+        private final int sampleRate;
+
+        public TelemetrySettings(ConfigurationSection section) {
+            if (section == null) {
+                this.flushIntervalSeconds = 60;
+                this.sampleRate = 0;
+                return;
+            }
+
+            this.flushIntervalSeconds = Math.max(1, section.getInt("flush_interval_seconds", 60));
+            this.sampleRate = Math.max(0, section.getInt("sample_rate", 0));
+        }
+
+        public int flushIntervalSeconds() {
+            return flushIntervalSeconds;
+        }
+
+        public int sampleRate() {
+            return sampleRate;
+        }
+    }
+
+    public static final class DiagnosticsSettings {
+
+        private final boolean leakDetection;
+        private final int leakGcCycles;
+        private final int leakCheckIntervalSeconds;
+        private final boolean stallWatchdog;
+        private final long stallThresholdMillis;
+        private final long stallSampleIntervalMillis;
+        private final int stallMaxSamples;
+        private final boolean reloadTimeline;
+        private final int reloadHistorySize;
+
+        public DiagnosticsSettings(ConfigurationSection section) {
+            if (section == null) {
+                this.leakDetection = true;
+                this.leakGcCycles = 5;
+                this.leakCheckIntervalSeconds = 30;
+                this.stallWatchdog = true;
+                this.stallThresholdMillis = 100L;
+                this.stallSampleIntervalMillis = 50L;
+                this.stallMaxSamples = 5;
+                this.reloadTimeline = true;
+                this.reloadHistorySize = 32;
+                return;
+            }
+
+            this.leakDetection = section.getBoolean("leak_detection", true);
+            this.leakGcCycles = Math.max(1, section.getInt("leak_gc_cycles", 5));
+            this.leakCheckIntervalSeconds = Math.max(1, section.getInt("leak_check_interval_seconds", 30));
+            this.stallWatchdog = section.getBoolean("stall_watchdog", true);
+            this.stallThresholdMillis = Math.max(1L, section.getLong("stall_threshold_ms", 100L));
+            this.stallSampleIntervalMillis = Math.max(1L, section.getLong("stall_sample_interval_ms", 50L));
+            this.stallMaxSamples = Math.max(1, section.getInt("stall_max_samples", 5));
+            this.reloadTimeline = section.getBoolean("reload_timeline", true);
+            this.reloadHistorySize = Math.max(1, section.getInt("reload_history_size", 32));
+        }
+
+        public boolean leakDetection() {
+            return leakDetection;
+        }
+
+        public int leakGcCycles() {
+            return leakGcCycles;
+        }
+
+        public int leakCheckIntervalSeconds() {
+            return leakCheckIntervalSeconds;
+        }
+
+        public boolean stallWatchdog() {
+            return stallWatchdog;
+        }
+
+        public long stallThresholdMillis() {
+            return stallThresholdMillis;
+        }
+
+        public long stallSampleIntervalMillis() {
+            return stallSampleIntervalMillis;
+        }
+
+        public int stallMaxSamples() {
+            return stallMaxSamples;
+        }
+
+        public boolean reloadTimeline() {
+            return reloadTimeline;
+        }
+
+        public int reloadHistorySize() {
+            return reloadHistorySize;
+        }
+    }
+
+    public static final class FlightRecorderSettings {
+
+        private final boolean enabled;
+        private final String file;
+        private final int sizeKilobytes;
+
+        public FlightRecorderSettings(ConfigurationSection section) {
+            if (section == null) {
+                this.enabled = false;
+                this.file = "flight-recorder.bin";
+                this.sizeKilobytes = 1024;
+                return;
+            }
+
+            this.enabled = section.getBoolean("enabled", false);
+            this.file = section.getString("file", "flight-recorder.bin");
+            this.sizeKilobytes = Math.max(8, section.getInt("size_kb", 1024));
+        }
+
+        public boolean enabled() {
+            return enabled;
+        }
+
+        public String file() {
+            return file;
+        }
+
+        public int sizeKilobytes() {
+            return sizeKilobytes;
+        }
     }
 }
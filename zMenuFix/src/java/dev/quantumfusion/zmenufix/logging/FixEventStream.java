@@ -0,0 +1,133 @@
+package dev.quantumfusion.zmenufix.logging;
+
+import dev.quantumfusion.zmenufix.logging.store.FixEventRecord;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.logging.Level;
+
+public final class FixEventStream implements AutoCloseable {
+
+    private static final int CONSOLE_PLAYER_LIMIT = 10;
+
+    private final ZMenuFixFileLogger logger;
+    private final String reason;
+    private final LocalDateTime startedAt;
+    private final Path spool;
+    private final StringBuilder consolePreview = new StringBuilder();
+
+    private BufferedWriter writer;
+    private int closedCount;
+    private boolean completed;
+
+    FixEventStream(ZMenuFixFileLogger logger, String reason, LocalDateTime startedAt, Path spool) {
+        this.logger = Objects.requireNonNull(logger, "logger");
+        this.reason = Objects.requireNonNull(reason, "reason");
+        this.startedAt = Objects.requireNonNull(startedAt, "startedAt");
+        this.spool = spool;
+        if (spool != null) {
+            try {
+                this.writer = Files.newBufferedWriter(spool, StandardCharsets.UTF_8);
+            } catch (IOException exception) {
+                logger.consoleLogger().log(Level.SEVERE, "Unable to open fix event spool file.", exception);
+            }
+        }
+    }
+
+    public synchronized void record(UUID uuid, String name) {
+        closedCount++;
+
+        if (name != null && !name.isBlank() && closedCount <= CONSOLE_PLAYER_LIMIT) {
+            if (consolePreview.length() > 0) {
+                consolePreview.append(", ");
+            }
+            consolePreview.append(name);
+        }
+
+        if (writer == null) {
+            return;
+        }
+
+        try {
+            writer.write(FixEventRecord.spoolLine(uuid, name));
+            writer.newLine();
+        } catch (IOException exception) {
+            logger.consoleLogger().log(Level.SEVERE, "Failed to spool fix event entry, player list will be partial.",
+                    exception);
+            closeWriterQuietly();
+        }
+    }
+
+    public synchronized int closedCount() {
+        return closedCount;
+    }
+
+    public synchronized void complete() {
+        if (completed) {
+            return;
+        }
+        completed = true;
+        closeWriterQuietly();
+        logger.commitFixEvent(this);
+    }
+
+    @Override
+    public synchronized void close() {
+        if (!completed) {
+            completed = true;
+            closeWriterQuietly();
+            deleteSpool();
+        }
+    }
+
+    String reason() {
+        return reason;
+    }
+
+    LocalDateTime startedAt() {
+        return startedAt;
+    }
+
+    Path spool() {
+        return spool;
+    }
+
+    String consolePreview() {
+        if (consolePreview.length() == 0) {
+            return "";
+        }
+        int hidden = closedCount - CONSOLE_PLAYER_LIMIT;
+        if (hidden <= 0) {
+            return consolePreview.toString();
+        }
+        return consolePreview + " (+" + hidden + " more)";
+    }
+
+    private void closeWriterQuietly() {
+        if (writer == null) {
+            return;
+        }
+        try {
+            writer.close();
+        } catch (IOException ignored) {
+            // spool contents are best effort
+        }
+        writer = null;
+    }
+
+    private void deleteSpool() {
+        if (spool == null) {
+            return;
+        }
+        try {
+            Files.deleteIfExists(spool);
+        } catch (IOException ignored) {
+            // a leftover spool file is harmless
+        }
+    }
+}
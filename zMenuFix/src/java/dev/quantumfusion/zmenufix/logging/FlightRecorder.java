@@ -0,0 +1,297 @@
+package dev.quantumfusion.zmenufix.logging;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+public final class FlightRecorder {
+
+    private static final VarHandle LONG_VIEW =
+            MethodHandles.byteBufferViewVarHandle(long[].class, ByteOrder.LITTLE_ENDIAN);
+
+    private static final int MAGIC = 0x5A4D4652;
+    private static final int FORMAT_VERSION = 1;
+    private static final int HEADER_SIZE = 64;
+    private static final int RECORD_SIZE = 64;
+    private static final int MIN_CAPACITY = 64;
+
+    private static final int OFFSET_SEQUENCE = 0;
+    private static final int OFFSET_TIMESTAMP = 8;
+    private static final int OFFSET_TYPE = 16;
+    private static final int OFFSET_COUNT = 20;
+    private static final int OFFSET_VALUE_HIGH = 24;
+    private static final int OFFSET_VALUE_LOW = 32;
+    private static final int OFFSET_TEXT = 40;
+    private static final int MAX_TEXT_BYTES = RECORD_SIZE - OFFSET_TEXT - 1;
+
+    private static final FlightRecorder DISABLED = new FlightRecorder();
+
+    private final Path file;
+    private volatile MappedByteBuffer buffer;
+    private final int capacity;
+    private final AtomicLong cursor;
+
+    private FlightRecorder() {
+        this.file = null;
+        this.buffer = null;
+        this.capacity = 0;
+        this.cursor = new AtomicLong();
+    }
+
+    private FlightRecorder(Path file, MappedByteBuffer buffer, int capacity, long nextSequence) {
+        this.file = file;
+        this.buffer = buffer;
+        this.capacity = capacity;
+        this.cursor = new AtomicLong(nextSequence);
+    }
+
+    public static FlightRecorder disabled() {
+        return DISABLED;
+    }
+
+    public static FlightRecorder open(Path file, long sizeBytes) throws IOException {
+        Objects.requireNonNull(file, "file");
+        int capacity = (int) Math.max(MIN_CAPACITY, Math.min(Integer.MAX_VALUE / RECORD_SIZE - 1,
+                (sizeBytes - HEADER_SIZE) / RECORD_SIZE));
+        long mappedSize = HEADER_SIZE + (long) capacity * RECORD_SIZE;
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE)) {
+            boolean reuse = channel.size() == mappedSize;
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0L, mappedSize);
+            buffer.order(ByteOrder.LITTLE_ENDIAN);
+            if (reuse && buffer.getInt(0) == MAGIC && buffer.getInt(4) == FORMAT_VERSION
+                    && buffer.getInt(8) == RECORD_SIZE && buffer.getInt(12) == capacity) {
+                return new FlightRecorder(file, buffer, capacity, highestSequence(buffer, capacity) + 1L);
+            }
+
+            for (long offset = 0L; offset < mappedSize; offset += Long.BYTES) {
+                buffer.putLong((int) offset, 0L);
+            }
+            buffer.putInt(0, MAGIC);
+            buffer.putInt(4, FORMAT_VERSION);
+            buffer.putInt(8, RECORD_SIZE);
+            buffer.putInt(12, capacity);
+            buffer.force();
+            return new FlightRecorder(file, buffer, capacity, 1L);
+        }
+    }
+
+    public boolean enabled() {
+        return buffer != null;
+    }
+
+    public void record(EventType type, String text) {
+        record(type, 0, 0L, 0L, text);
+    }
+
+    public void record(EventType type, int count, long durationNanos, String text) {
+        record(type, count, durationNanos, 0L, text);
+    }
+
+    public void recordPlayer(EventType type, UUID uuid, String name) {
+        if (uuid == null) {
+            record(type, 0, 0L, 0L, name);
+            return;
+        }
+        record(type, 0, uuid.getMostSignificantBits(), uuid.getLeastSignificantBits(), name);
+    }
+
+    public void force() {
+        MappedByteBuffer current = buffer;
+        if (current != null) {
+            current.force();
+        }
+    }
+
+    /**
+     * Forces the ring to disk and stops recording. The file channel is already closed once the ring is mapped, and
+     * the mapping itself is released when the buffer is collected, so callers should drop their reference too.
+     */
+    public void close() {
+        MappedByteBuffer current = buffer;
+        if (current == null) {
+            return;
+        }
+        buffer = null;
+        current.force();
+    }
+
+    public Path dump(Path target) throws IOException {
+        Objects.requireNonNull(target, "target");
+        MappedByteBuffer current = buffer;
+        if (current == null) {
+            throw new IOException("Flight recorder is disabled.");
+        }
+
+        List<Snapshot> snapshots = new ArrayList<>();
+        for (int slot = 0; slot < capacity; slot++) {
+            Snapshot snapshot = readSlot(current, slot);
+            if (snapshot != null) {
+                snapshots.add(snapshot);
+            }
+        }
+        snapshots.sort((left, right) -> Long.compare(left.sequence, right.sequence));
+
+        try (BufferedWriter writer = Files.newBufferedWriter(target, StandardCharsets.UTF_8)) {
+            writer.write("<?xml version=\"1.0\" encoding=\"UTF-8\"?>");
+            writer.newLine();
+            writer.write("<flight-recorder file=\"" + XmlLogFormat.escapeForXml(String.valueOf(file.getFileName()))
+                    + "\" capacity=\"" + capacity + "\" events=\"" + snapshots.size() + "\">");
+            writer.newLine();
+            for (Snapshot snapshot : snapshots) {
+                writeEvent(writer, snapshot);
+            }
+            writer.write("</flight-recorder>");
+            writer.newLine();
+        }
+        return target;
+    }
+
+    private void record(EventType type, int count, long valueHigh, long valueLow, String text) {
+        MappedByteBuffer buffer = this.buffer;
+        if (buffer == null) {
+            return;
+        }
+        long sequence = cursor.getAndIncrement();
+        int offset = HEADER_SIZE + (int) Math.floorMod(sequence, (long) capacity) * RECORD_SIZE;
+
+        LONG_VIEW.setRelease(buffer, offset + OFFSET_SEQUENCE, 0L);
+        // readers re-check the sequence after copying the fields, so the field stores must not move above the 0
+        VarHandle.storeStoreFence();
+        buffer.putLong(offset + OFFSET_TIMESTAMP, System.currentTimeMillis());
+        buffer.putInt(offset + OFFSET_TYPE, type.ordinal());
+        buffer.putInt(offset + OFFSET_COUNT, count);
+        buffer.putLong(offset + OFFSET_VALUE_HIGH, valueHigh);
+        buffer.putLong(offset + OFFSET_VALUE_LOW, valueLow);
+        byte[] encoded = text == null ? new byte[0] : text.getBytes(StandardCharsets.UTF_8);
+        int length = Math.min(encoded.length, MAX_TEXT_BYTES);
+        while (length < encoded.length && length > 0 && (encoded[length] & 0xC0) == 0x80) {
+            length--;
+        }
+        buffer.put(offset + OFFSET_TEXT, (byte) length);
+        buffer.put(offset + OFFSET_TEXT + 1, encoded, 0, length);
+        LONG_VIEW.setRelease(buffer, offset + OFFSET_SEQUENCE, sequence);
+    }
+
+    private Snapshot readSlot(MappedByteBuffer buffer, int slot) {
+        int offset = HEADER_SIZE + slot * RECORD_SIZE;
+        long sequence = (long) LONG_VIEW.getAcquire(buffer, offset + OFFSET_SEQUENCE);
+        if (sequence <= 0L || Math.floorMod(sequence, capacity) != slot) {
+            return null;
+        }
+        long timestamp = buffer.getLong(offset + OFFSET_TIMESTAMP);
+        int typeIndex = buffer.getInt(offset + OFFSET_TYPE);
+        int count = buffer.getInt(offset + OFFSET_COUNT);
+        long valueHigh = buffer.getLong(offset + OFFSET_VALUE_HIGH);
+        long valueLow = buffer.getLong(offset + OFFSET_VALUE_LOW);
+        int length = Math.min(Byte.toUnsignedInt(buffer.get(offset + OFFSET_TEXT)), MAX_TEXT_BYTES);
+        byte[] encoded = new byte[length];
+        buffer.get(offset + OFFSET_TEXT + 1, encoded, 0, length);
+        VarHandle.loadLoadFence();
+        if ((long) LONG_VIEW.getAcquire(buffer, offset + OFFSET_SEQUENCE) != sequence) {
+            // a writer reused the slot while it was being copied
+            return null;
+        }
+        return new Snapshot(sequence, timestamp, typeIndex, count, valueHigh, valueLow,
+                new String(encoded, StandardCharsets.UTF_8));
+    }
+
+    private void writeEvent(BufferedWriter writer, Snapshot snapshot) throws IOException {
+        int typeIndex = snapshot.typeIndex;
+        EventType[] types = EventType.values();
+        EventType type = typeIndex >= 0 && typeIndex < types.length ? types[typeIndex] : null;
+        long valueHigh = snapshot.valueHigh;
+        long valueLow = snapshot.valueLow;
+
+        StringBuilder line = new StringBuilder(160);
+        line.append("  <event seq=\"").append(snapshot.sequence)
+                .append("\" timestamp=\"")
+                .append(XmlLogFormat.LOG_LINE_FORMAT.format(Instant.ofEpochMilli(snapshot.timestamp)))
+                .append("\" type=\"").append(type == null ? "UNKNOWN_" + typeIndex : type.name()).append('"');
+        if (type != null && type.playerEvent) {
+            if (valueHigh != 0L || valueLow != 0L) {
+                line.append(" uuid=\"").append(new UUID(valueHigh, valueLow)).append('"');
+            }
+        } else {
+            if (snapshot.count != 0) {
+                line.append(" count=\"").append(snapshot.count).append('"');
+            }
+            if (valueHigh != 0L) {
+                line.append(" duration-ms=\"")
+                        .append(String.format(Locale.US, "%.3f", valueHigh / 1_000_000.0D)).append('"');
+            }
+        }
+        if (!snapshot.text.isEmpty()) {
+            line.append(" detail=\"").append(XmlLogFormat.escapeForXml(snapshot.text)).append('"');
+        }
+        line.append("/>");
+        writer.write(line.toString());
+        writer.newLine();
+    }
+
+    private static long highestSequence(MappedByteBuffer buffer, int capacity) {
+        long highest = 0L;
+        for (int slot = 0; slot < capacity; slot++) {
+            long sequence = buffer.getLong(HEADER_SIZE + slot * RECORD_SIZE + OFFSET_SEQUENCE);
+            if (sequence > highest) {
+                highest = sequence;
+            }
+        }
+        return highest;
+    }
+
+    private static final class Snapshot {
+
+        private final long sequence;
+        private final long timestamp;
+        private final int typeIndex;
+        private final int count;
+        private final long valueHigh;
+        private final long valueLow;
+        private final String text;
+
+        private Snapshot(long sequence, long timestamp, int typeIndex, int count, long valueHigh, long valueLow,
+                         String text) {
+            this.sequence = sequence;
+            this.timestamp = timestamp;
+            this.typeIndex = typeIndex;
+            this.count = count;
+            this.valueHigh = valueHigh;
+            this.valueLow = valueLow;
+            this.text = text;
+        }
+    }
+
+    public enum EventType {
+        ZMENUFIX_ENABLED(false),
+        ZMENUFIX_DISABLED(false),
+        ZMENU_ENABLED(false),
+        ZMENU_DISABLED(false),
+        CLOSE_PASS_STARTED(false),
+        PLAYER_CLOSED(true),
+        CLOSE_PASS_FINISHED(false),
+        SHUTDOWN_CLOSE_PASS(false);
+
+        private final boolean playerEvent;
+
+        EventType(boolean playerEvent) {
+            this.playerEvent = playerEvent;
+        }
+    }
+}
@@ -0,0 +1,31 @@
+package dev.quantumfusion.zmenufix.logging;
+
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.Locale;
+import java.util.Objects;
+
+/**
+ * Timestamp format and escaping shared by every XML file ZMenuFix writes. The logtool module parses the same format
+ * with its own copy, since it does not depend on the plugin.
+ */
+public final class XmlLogFormat {
+
+    /**
+     * Formats both local date-times and instants; instants are shown in the server's time zone.
+     */
+    public static final DateTimeFormatter LOG_LINE_FORMAT =
+            DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss.SSS", Locale.US).withZone(ZoneId.systemDefault());
+
+    private XmlLogFormat() {
+    }
+
+    public static String escapeForXml(String value) {
+        Objects.requireNonNull(value, "value");
+        return value.replace("&", "&amp;")
+                .replace("\"", "&quot;")
+                .replace("<", "&lt;")
+                .replace(">", "&gt;")
+                .replace("'", "&apos;");
+    }
+}
@@ -2,38 +2,34 @@ package dev.quantumfusion.zmenufix.logging;
 
 import dev.quantumfusion.zmenufix.ZMenuFixPlugin;
 import dev.quantumfusion.zmenufix.config.ZMenuFixConfiguration;
+import dev.quantumfusion.zmenufix.logging.store.FixEventRecord;
+import dev.quantumfusion.zmenufix.logging.store.H2HandledErrorStore;
+import dev.quantumfusion.zmenufix.logging.store.HandledError;
+import dev.quantumfusion.zmenufix.logging.store.HandledErrorStore;
+import dev.quantumfusion.zmenufix.logging.store.XmlHandledErrorStore;
 import java.io.IOException;
 import java.io.PrintWriter;
 import java.io.StringWriter;
-import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
-import java.nio.file.StandardOpenOption;
+import java.time.Duration;
 import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
-import java.util.List;
-import java.util.Locale;
 import java.util.Objects;
-import java.util.concurrent.locks.Lock;
-import java.util.concurrent.locks.ReentrantLock;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
 public final class ZMenuFixFileLogger {
 
-    private static final DateTimeFormatter LOG_LINE_FORMAT =
-            DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss.SSS", Locale.US);
-    private static final String XML_HEADER = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>";
-    private static final String ROOT_ELEMENT = "handled-errors";
-    private static final String ROOT_OPEN = "<" + ROOT_ELEMENT + ">";
-    private static final String ROOT_CLOSE = "</" + ROOT_ELEMENT + ">";
+    private static final String BACKEND_H2 = "h2";
+    private static final String SPOOL_PREFIX = "fix-event-";
+    private static final String SPOOL_SUFFIX = ".part";
 
     private final ZMenuFixPlugin plugin;
     private final Logger consoleLogger;
     private final ZMenuFixConfiguration.LoggingSettings settings;
-    private final Lock writeLock = new ReentrantLock();
 
-    private Path logFile;
+    private HandledErrorStore store;
 
     public ZMenuFixFileLogger(ZMenuFixPlugin plugin, ZMenuFixConfiguration.LoggingSettings settings) {
         this.plugin = Objects.requireNonNull(plugin, "plugin");
@@ -54,6 +50,10 @@ public final class ZMenuFixFileLogger {
         log(Level.INFO, message, null);
     }
 
+    public void infoRecorded(String message) {
+        log(Level.INFO, message, null, false, true);
+    }
+
     public void warn(String message) {
         log(Level.WARNING, message, null);
     }
@@ -62,166 +62,169 @@ public final class ZMenuFixFileLogger {
         log(Level.SEVERE, message, throwable);
     }
 
-    public void logFixEventXml(String reason, int closedCount, List<String> affectedPlayers) {
+    /**
+     * Logs the message to the console without the stack trace and persists it with the full stack trace.
+     */
+    public void warnWithStacktrace(String message, Throwable throwable) {
+        Objects.requireNonNull(message, "message");
+        Objects.requireNonNull(throwable, "throwable");
+        consoleLogger.log(Level.WARNING, message);
+        persist(Level.WARNING, message, throwable, true, false);
+    }
+
+    public FixEventStream openFixEvent(String reason) {
         Objects.requireNonNull(reason, "reason");
-        Objects.requireNonNull(affectedPlayers, "affectedPlayers");
+        Path spool = null;
+        if (store != null) {
+            try {
+                spool = Files.createTempFile(plugin.getDataFolder().toPath(), SPOOL_PREFIX, SPOOL_SUFFIX);
+            } catch (IOException exception) {
+                consoleLogger.log(Level.SEVERE, "Unable to create fix event spool file.", exception);
+            }
+        }
+        return new FixEventStream(this, reason, LocalDateTime.now(), spool);
+    }
+
+    Logger consoleLogger() {
+        return consoleLogger;
+    }
+
+    void commitFixEvent(FixEventStream event) {
+        if (event.closedCount() == 0) {
+            // nothing was closed, there is no event worth logging or persisting
+            discardSpool(event.spool());
+            return;
+        }
 
         StringBuilder consoleMessage = new StringBuilder();
-        consoleMessage.append("Closed ").append(closedCount).append(" inventory view(s) because ")
-                .append(reason).append('.');
-        StringBuilder playersList = new StringBuilder();
-        for (String player : affectedPlayers) {
-            if (player == null || player.isBlank()) {
-                continue;
-            }
-            if (playersList.length() > 0) {
-                playersList.append(", ");
-            }
-            playersList.append(player);
+        consoleMessage.append("Closed ").append(event.closedCount()).append(" inventory view(s) because ")
+                .append(event.reason()).append('.');
+        String preview = event.consolePreview();
+        if (!preview.isEmpty()) {
+            consoleMessage.append(" Players: ").append(preview);
+        }
+        consoleLogger.log(Level.INFO, consoleMessage.toString());
+
+        FixEventRecord record = new FixEventRecord(event.startedAt(), event.reason(), event.closedCount(),
+                event.spool());
+        if (store == null) {
+            record.discardSpool();
+            return;
         }
-        if (playersList.length() > 0) {
-            consoleMessage.append(" Players: ").append(playersList);
+
+        try {
+            store.appendFixEvent(record);
+        } catch (IOException exception) {
+            consoleLogger.log(Level.SEVERE, "Failed to persist fix event.", exception);
         }
-        log(Level.INFO, consoleMessage.toString(), null);
+    }
 
+    public boolean flush(Duration deadline) {
+        Objects.requireNonNull(deadline, "deadline");
+        HandledErrorStore current = store;
+        return current == null || current.flush(deadline);
     }
 
     public void shutdown() {
         debug("Shutting down file logger.");
+        HandledErrorStore current = store;
+        store = null;
+        if (current != null) {
+            current.close();
+        }
     }
 
     private void initialize() {
-        writeLock.lock();
+        Path dataFolder = plugin.getDataFolder().toPath();
+        deleteStaleSpools(dataFolder);
+        if (BACKEND_H2.equals(settings.backend())) {
+            try {
+                store = new H2HandledErrorStore(dataFolder.resolve(settings.database().file()), settings.database(),
+                        consoleLogger);
+                return;
+            } catch (IOException exception) {
+                consoleLogger.log(Level.SEVERE, "Unable to open handled-error database, falling back to XML.",
+                        exception);
+            }
+        } else if (!"xml".equals(settings.backend())) {
+            consoleLogger.warning("Unknown log backend '" + settings.backend() + "', using XML.");
+        }
+
         try {
-            logFile = plugin.getDataFolder().toPath().resolve(settings.file());
-            ensureFileReady();
+            store = new XmlHandledErrorStore(dataFolder.resolve(settings.file()));
         } catch (IOException exception) {
             consoleLogger.log(Level.SEVERE, "Unable to initialize handled-errors.xml log file.", exception);
-        } finally {
-            writeLock.unlock();
         }
     }
 
-    private void ensureFileReady() throws IOException {
-        if (logFile == null) {
-            logFile = plugin.getDataFolder().toPath().resolve(settings.file());
-        }
-
-        if (Files.notExists(logFile)) {
-            writeFreshDocument();
+    private void deleteStaleSpools(Path dataFolder) {
+        if (!Files.isDirectory(dataFolder)) {
             return;
         }
-
-        if (!Files.isRegularFile(logFile)) {
-            throw new IOException("Logging target is not a regular file: " + logFile);
-        }
-
-        if (Files.size(logFile) == 0L) {
-            writeFreshDocument();
+        // spools left behind by a crash mid close pass; their events were never committed
+        try (DirectoryStream<Path> spools = Files.newDirectoryStream(dataFolder, SPOOL_PREFIX + "*" + SPOOL_SUFFIX)) {
+            for (Path spool : spools) {
+                discardSpool(spool);
+            }
+        } catch (IOException exception) {
+            consoleLogger.log(Level.WARNING, "Unable to clean up stale fix event spool files.", exception);
         }
     }
 
-    private void writeFreshDocument() throws IOException {
-        if (logFile == null) {
+    private void discardSpool(Path spool) {
+        if (spool == null) {
             return;
         }
-        StringBuilder builder = new StringBuilder();
-        builder.append(XML_HEADER).append(System.lineSeparator())
-                .append(ROOT_OPEN).append(System.lineSeparator())
-                .append(ROOT_CLOSE).append(System.lineSeparator());
-        Files.writeString(logFile, builder.toString(), StandardCharsets.UTF_8,
-                StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING);
+        try {
+            Files.deleteIfExists(spool);
+        } catch (IOException exception) {
+            consoleLogger.log(Level.WARNING, "Unable to delete fix event spool file " + spool + ".", exception);
+        }
     }
 
     private void log(Level level, String message, Throwable throwable) {
+        log(level, message, throwable, settings.includeStacktraces(), false);
+    }
+
+    private void log(Level level, String message, Throwable throwable, boolean includeStacktrace,
+                     boolean persistWithoutThrowable) {
         Objects.requireNonNull(level, "level");
         Objects.requireNonNull(message, "message");
 
         consoleLogger.log(level, message, throwable);
+        persist(level, message, throwable, includeStacktrace, persistWithoutThrowable);
+    }
 
-        if (!shouldPersist(level, throwable)) {
+    private void persist(Level level, String message, Throwable throwable, boolean includeStacktrace,
+                         boolean persistWithoutThrowable) {
+        if (!shouldPersist(throwable, persistWithoutThrowable)) {
+            return;
+        }
+
+        HandledErrorStore current = store;
+        if (current == null) {
             return;
         }
 
-        writeLock.lock();
         try {
-            String xmlEntry = buildLogEntry(level, message, throwable);
-            appendXmlEntry(xmlEntry);
+            current.append(buildHandledError(level, message, throwable, includeStacktrace));
         } catch (IOException exception) {
-            consoleLogger.log(Level.SEVERE, "Failed to write to handled-errors.xml.", exception);
-        } finally {
-            writeLock.unlock();
-        }
-    }
-
-    private boolean shouldPersist(Level level, Throwable throwable) {
-        return settings.enabled() && throwable != null;
-    }
-
-    private String buildLogEntry(Level level, String message, Throwable throwable) {
-        LocalDateTime now = LocalDateTime.now();
-        StringBuilder builder = new StringBuilder();
-        builder.append("<log timestamp=\"")
-                .append(escapeForXml(LOG_LINE_FORMAT.format(now)))
-                .append("\" level=\"")
-                .append(escapeForXml(level.getName()))
-                .append("\">");
-        builder.append("<message>")
-                .append(escapeForXml(message))
-                .append("</message>");
-
-        if (throwable != null) {
-            builder.append("<error type=\"")
-                    .append(escapeForXml(throwable.getClass().getName()))
-                    .append("\"");
-            String throwableMessage = throwable.getMessage();
-            if (throwableMessage != null && !throwableMessage.isBlank()) {
-                builder.append(" message=\"")
-                        .append(escapeForXml(throwableMessage))
-                        .append("\"");
-            }
-            builder.append("/>");
-            if (settings.includeStacktraces()) {
-                builder.append("<stacktrace><![CDATA[")
-                        .append(stackTraceAsString(throwable))
-                        .append("]]></stacktrace>");
-            }
+            consoleLogger.log(Level.SEVERE, "Failed to persist handled error.", exception);
         }
-
-        builder.append("</log>");
-        return builder.toString();
     }
 
-    private void appendXmlEntry(String entry) throws IOException {
-        ensureFileReady();
-        if (logFile == null) {
-            return;
-        }
-
-        String content = Files.readString(logFile, StandardCharsets.UTF_8);
-        int insertIndex = content.lastIndexOf(ROOT_CLOSE);
-        if (insertIndex < 0) {
-            writeFreshDocument();
-            content = Files.readString(logFile, StandardCharsets.UTF_8);
-            insertIndex = content.lastIndexOf(ROOT_CLOSE);
-            if (insertIndex < 0) {
-                return;
-            }
-        }
+    private boolean shouldPersist(Throwable throwable, boolean persistWithoutThrowable) {
+        return settings.enabled() && (throwable != null || persistWithoutThrowable);
+    }
 
-        String prefix = content.substring(0, insertIndex);
-        if (!prefix.endsWith(System.lineSeparator())) {
-            prefix = prefix + System.lineSeparator();
+    private HandledError buildHandledError(Level level, String message, Throwable throwable,
+                                           boolean includeStacktrace) {
+        if (throwable == null) {
+            return new HandledError(LocalDateTime.now(), level, message, null, null, null);
         }
-        String suffix = content.substring(insertIndex);
-
-        StringBuilder updated = new StringBuilder(prefix.length() + entry.length() + suffix.length() + 4);
-        updated.append(prefix);
-        updated.append("  ").append(entry).append(System.lineSeparator());
-        updated.append(suffix);
-
-        Files.writeString(logFile, updated.toString(), StandardCharsets.UTF_8,
-                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.CREATE);
+        String stacktrace = includeStacktrace ? stackTraceAsString(throwable) : null;
+        return new HandledError(LocalDateTime.now(), level, message, throwable.getClass().getName(),
+                throwable.getMessage(), stacktrace);
     }
 
     private String stackTraceAsString(Throwable throwable) {
@@ -229,13 +232,4 @@ public final class ZMenuFixFileLogger {
         throwable.printStackTrace(new PrintWriter(stringWriter));
         return stringWriter.toString();
     }
-
-    private String escapeForXml(String value) {
-        Objects.requireNonNull(value, "value");
-        return value.replace("&", "&amp;")
-                .replace("\"", "&quot;")
-                .replace("<", "&lt;")
-                .replace(">", "&gt;")
-                .replace("'", "&apos;");
-    }
 }
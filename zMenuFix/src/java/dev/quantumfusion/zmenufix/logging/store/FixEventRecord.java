@@ -0,0 +1,85 @@
+package dev.quantumfusion.zmenufix.logging.store;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.Objects;
+import java.util.UUID;
+
+public final class FixEventRecord {
+
+    private static final char FIELD_SEPARATOR = '\t';
+
+    private final LocalDateTime timestamp;
+    private final String reason;
+    private final int closedCount;
+    private final Path playerSpool;
+
+    public FixEventRecord(LocalDateTime timestamp, String reason, int closedCount, Path playerSpool) {
+        this.timestamp = Objects.requireNonNull(timestamp, "timestamp");
+        this.reason = Objects.requireNonNull(reason, "reason");
+        this.closedCount = closedCount;
+        this.playerSpool = playerSpool;
+    }
+
+    public static String spoolLine(UUID uuid, String name) {
+        String safeName = name == null ? "" : name.replace('\t', ' ').replace('\n', ' ').replace('\r', ' ');
+        return (uuid == null ? "" : uuid.toString()) + FIELD_SEPARATOR + safeName;
+    }
+
+    public LocalDateTime timestamp() {
+        return timestamp;
+    }
+
+    public String reason() {
+        return reason;
+    }
+
+    public int closedCount() {
+        return closedCount;
+    }
+
+    public void forEachPlayer(PlayerConsumer consumer) throws IOException {
+        if (playerSpool == null || Files.notExists(playerSpool)) {
+            return;
+        }
+        try (BufferedReader reader = Files.newBufferedReader(playerSpool, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                int separator = line.indexOf(FIELD_SEPARATOR);
+                if (separator < 0) {
+                    continue;
+                }
+                UUID uuid = null;
+                if (separator > 0) {
+                    try {
+                        uuid = UUID.fromString(line.substring(0, separator));
+                    } catch (IllegalArgumentException ignored) {
+                        // keep the name even if the id is unreadable
+                    }
+                }
+                String name = line.substring(separator + 1);
+                consumer.accept(uuid, name.isEmpty() ? null : name);
+            }
+        }
+    }
+
+    public void discardSpool() {
+        if (playerSpool == null) {
+            return;
+        }
+        try {
+            Files.deleteIfExists(playerSpool);
+        } catch (IOException ignored) {
+            // a leftover spool file is harmless
+        }
+    }
+
+    @FunctionalInterface
+    public interface PlayerConsumer {
+        void accept(UUID uuid, String name) throws IOException;
+    }
+}
@@ -0,0 +1,436 @@
+package dev.quantumfusion.zmenufix.logging.store;
+
+import dev.quantumfusion.zmenufix.config.ZMenuFixConfiguration;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.Driver;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.Properties;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+public final class H2HandledErrorStore implements HandledErrorStore {
+
+    private static final String DRIVER_CLASS = "org.h2.Driver";
+    private static final int QUEUE_CAPACITY = 16_384;
+    private static final long RETENTION_INTERVAL_NANOS = TimeUnit.HOURS.toNanos(1L);
+    private static final long CLOSE_TIMEOUT_MILLIS = 5_000L;
+    private static final long INTERRUPT_TIMEOUT_MILLIS = 1_000L;
+    private static final Object SHUTDOWN = new Object();
+
+    private static final String[] SCHEMA = {
+        "CREATE TABLE IF NOT EXISTS handled_errors ("
+                + "id BIGINT AUTO_INCREMENT PRIMARY KEY, "
+                + "logged_at TIMESTAMP NOT NULL, "
+                + "level VARCHAR(16) NOT NULL, "
+                + "message CHARACTER VARYING NOT NULL, "
+                + "error_type VARCHAR(512), "
+                + "error_message CHARACTER VARYING, "
+                + "stacktrace CHARACTER LARGE OBJECT)",
+        "CREATE INDEX IF NOT EXISTS idx_handled_errors_logged_at ON handled_errors(logged_at)",
+        "CREATE INDEX IF NOT EXISTS idx_handled_errors_level ON handled_errors(level)",
+        "CREATE INDEX IF NOT EXISTS idx_handled_errors_error_type ON handled_errors(error_type)",
+        "CREATE TABLE IF NOT EXISTS fix_events ("
+                + "id BIGINT AUTO_INCREMENT PRIMARY KEY, "
+                + "logged_at TIMESTAMP NOT NULL, "
+                + "reason VARCHAR(256) NOT NULL, "
+                + "closed_count INT NOT NULL)",
+        "CREATE INDEX IF NOT EXISTS idx_fix_events_logged_at ON fix_events(logged_at)",
+        "CREATE TABLE IF NOT EXISTS fix_event_players ("
+                + "event_id BIGINT NOT NULL REFERENCES fix_events(id) ON DELETE CASCADE, "
+                + "player_uuid UUID, "
+                + "player_name VARCHAR(64))"
+    };
+
+    private static final String INSERT_ERROR = "INSERT INTO handled_errors "
+            + "(logged_at, level, message, error_type, error_message, stacktrace) VALUES (?, ?, ?, ?, ?, ?)";
+    private static final String INSERT_FIX_EVENT =
+            "INSERT INTO fix_events (logged_at, reason, closed_count) VALUES (?, ?, ?)";
+    private static final String INSERT_FIX_PLAYER =
+            "INSERT INTO fix_event_players (event_id, player_uuid, player_name) VALUES (?, ?, ?)";
+
+    private final Logger consoleLogger;
+    private final ZMenuFixConfiguration.DatabaseSettings settings;
+    private final Connection connection;
+    private final BlockingQueue<Object> queue = new LinkedBlockingQueue<>(QUEUE_CAPACITY);
+    private final ReadWriteLock gate = new ReentrantReadWriteLock();
+    private final AtomicLong droppedEntries = new AtomicLong();
+    private final Thread worker;
+
+    private volatile boolean running = true;
+    private long lastRetentionRun;
+
+    public H2HandledErrorStore(
+            Path databaseFile,
+            ZMenuFixConfiguration.DatabaseSettings settings,
+            Logger consoleLogger
+    ) throws IOException {
+        Objects.requireNonNull(databaseFile, "databaseFile");
+        this.settings = Objects.requireNonNull(settings, "settings");
+        this.consoleLogger = Objects.requireNonNull(consoleLogger, "consoleLogger");
+        this.connection = openConnection(databaseFile);
+        this.lastRetentionRun = System.nanoTime() - RETENTION_INTERVAL_NANOS;
+        this.worker = new Thread(this::drainLoop, "ZMenuFix-HandledErrorStore");
+        this.worker.setDaemon(true);
+        this.worker.start();
+    }
+
+    @Override
+    public void append(HandledError error) {
+        enqueue(Objects.requireNonNull(error, "error"));
+    }
+
+    @Override
+    public void appendFixEvent(FixEventRecord event) {
+        if (!enqueue(Objects.requireNonNull(event, "event"))) {
+            event.discardSpool();
+        }
+    }
+
+    @Override
+    public boolean flush(Duration deadline) {
+        Objects.requireNonNull(deadline, "deadline");
+        CountDownLatch marker = new CountDownLatch(1);
+        long deadlineNanos = System.nanoTime() + deadline.toNanos();
+        try {
+            gate.readLock().lock();
+            try {
+                if (!running) {
+                    return true;
+                }
+                if (!queue.offer(marker, deadline.toNanos(), TimeUnit.NANOSECONDS)) {
+                    return false;
+                }
+            } finally {
+                gate.readLock().unlock();
+            }
+            return marker.await(Math.max(0L, deadlineNanos - System.nanoTime()), TimeUnit.NANOSECONDS);
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    @Override
+    public void close() {
+        gate.writeLock().lock();
+        try {
+            if (!running) {
+                return;
+            }
+            // stop accepting entries; the worker drains what is queued, then closes the connection itself
+            running = false;
+            queue.offer(SHUTDOWN);
+        } finally {
+            gate.writeLock().unlock();
+        }
+        if (awaitWorker(CLOSE_TIMEOUT_MILLIS)) {
+            return;
+        }
+
+        worker.interrupt();
+        if (!awaitWorker(INTERRUPT_TIMEOUT_MILLIS)) {
+            // the writer is stuck inside H2; closing the connection makes its next call fail
+            closeConnection();
+        }
+        int discarded = discardQueued();
+        consoleLogger.warning("Handled-error database writer did not finish within " + CLOSE_TIMEOUT_MILLIS
+                + " ms; stopped it and dropped " + discarded + " pending entr(y/ies).");
+    }
+
+    private boolean enqueue(Object entry) {
+        gate.readLock().lock();
+        try {
+            // close() takes the write lock, so an accepted entry is always ahead of the shutdown marker
+            if (running && queue.offer(entry)) {
+                return true;
+            }
+        } finally {
+            gate.readLock().unlock();
+        }
+        long dropped = droppedEntries.incrementAndGet();
+        if (dropped == 1L || dropped % 1_000L == 0L) {
+            consoleLogger.warning("Handled-error database is closed or its queue is full; dropped " + dropped
+                    + " entr(y/ies) so far.");
+        }
+        return false;
+    }
+
+    private boolean awaitWorker(long timeoutMillis) {
+        try {
+            worker.join(timeoutMillis);
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+        }
+        return !worker.isAlive();
+    }
+
+    private int discardQueued() {
+        List<Object> abandoned = new ArrayList<>();
+        queue.drainTo(abandoned);
+        int discarded = 0;
+        for (Object entry : abandoned) {
+            if (entry instanceof CountDownLatch marker) {
+                marker.countDown();
+            } else if (entry instanceof FixEventRecord event) {
+                event.discardSpool();
+                discarded++;
+            } else if (entry instanceof HandledError) {
+                discarded++;
+            }
+        }
+        return discarded;
+    }
+
+    private Connection openConnection(Path databaseFile) throws IOException {
+        try {
+            Driver driver = (Driver) Class.forName(DRIVER_CLASS).getDeclaredConstructor().newInstance();
+            String url = "jdbc:h2:file:" + databaseFile.toAbsolutePath() + ";DB_CLOSE_ON_EXIT=FALSE";
+            Connection opened = driver.connect(url, new Properties());
+            if (opened == null) {
+                throw new IOException("H2 driver rejected database URL " + url);
+            }
+            try (Statement statement = opened.createStatement()) {
+                for (String ddl : SCHEMA) {
+                    statement.execute(ddl);
+                }
+            }
+            opened.setAutoCommit(false);
+            return opened;
+        } catch (ReflectiveOperationException | SQLException exception) {
+            throw new IOException("Unable to open handled-error database at " + databaseFile, exception);
+        }
+    }
+
+    private void drainLoop() {
+        try {
+            drainUntilStopped();
+        } finally {
+            closeConnection();
+        }
+    }
+
+    private void closeConnection() {
+        try {
+            connection.close();
+        } catch (SQLException exception) {
+            consoleLogger.log(Level.WARNING, "Failed to close handled-error database.", exception);
+        }
+    }
+
+    private void drainUntilStopped() {
+        List<Object> batch = new ArrayList<>(settings.batchSize());
+        boolean stopping = false;
+        while (!stopping) {
+            try {
+                collectBatch(batch);
+            } catch (InterruptedException exception) {
+                stopping = true;
+            }
+            if (!running && batch.isEmpty() && queue.isEmpty()) {
+                stopping = true;
+            }
+
+            List<CountDownLatch> markers = new ArrayList<>();
+            List<HandledError> errors = new ArrayList<>();
+            List<FixEventRecord> fixEvents = new ArrayList<>();
+            if (partition(batch, markers, errors, fixEvents)) {
+                stopping = true;
+                queue.drainTo(batch);
+                partition(batch, markers, errors, fixEvents);
+            }
+
+            writeBatch(errors, fixEvents);
+            markers.forEach(CountDownLatch::countDown);
+            applyRetentionIfDue();
+        }
+    }
+
+    private void collectBatch(List<Object> batch) throws InterruptedException {
+        Object first = queue.poll(settings.flushIntervalMillis(), TimeUnit.MILLISECONDS);
+        if (first == null) {
+            return;
+        }
+        batch.add(first);
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(settings.flushIntervalMillis());
+        while (batch.size() < settings.batchSize() && !isBarrier(batch.get(batch.size() - 1))) {
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0L) {
+                break;
+            }
+            Object next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+            if (next == null) {
+                break;
+            }
+            batch.add(next);
+        }
+    }
+
+    private static boolean isBarrier(Object entry) {
+        return entry == SHUTDOWN || entry instanceof CountDownLatch;
+    }
+
+    private static boolean partition(
+            List<Object> batch,
+            List<CountDownLatch> markers,
+            List<HandledError> errors,
+            List<FixEventRecord> fixEvents
+    ) {
+        boolean shutdownRequested = false;
+        for (Object entry : batch) {
+            if (entry == SHUTDOWN) {
+                shutdownRequested = true;
+            } else if (entry instanceof CountDownLatch marker) {
+                markers.add(marker);
+            } else if (entry instanceof HandledError error) {
+                errors.add(error);
+            } else if (entry instanceof FixEventRecord event) {
+                fixEvents.add(event);
+            }
+        }
+        batch.clear();
+        return shutdownRequested;
+    }
+
+    private void writeBatch(List<HandledError> errors, List<FixEventRecord> fixEvents) {
+        if (errors.isEmpty() && fixEvents.isEmpty()) {
+            return;
+        }
+
+        try {
+            if (!errors.isEmpty()) {
+                insertErrors(errors);
+            }
+            for (FixEventRecord event : fixEvents) {
+                insertFixEvent(event);
+            }
+            connection.commit();
+        } catch (SQLException | IOException exception) {
+            rollbackQuietly();
+            consoleLogger.log(Level.SEVERE, "Failed to write " + (errors.size() + fixEvents.size())
+                    + " entr(y/ies) to the handled-error database.", exception);
+        } finally {
+            fixEvents.forEach(FixEventRecord::discardSpool);
+        }
+    }
+
+    private void insertErrors(List<HandledError> errors) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(INSERT_ERROR)) {
+            for (HandledError error : errors) {
+                statement.setTimestamp(1, Timestamp.valueOf(error.timestamp()));
+                statement.setString(2, error.level().getName());
+                statement.setString(3, error.message());
+                setNullableString(statement, 4, error.errorType());
+                setNullableString(statement, 5, error.errorMessage());
+                if (error.stacktrace() == null) {
+                    statement.setNull(6, Types.CLOB);
+                } else {
+                    statement.setString(6, error.stacktrace());
+                }
+                statement.addBatch();
+            }
+            statement.executeBatch();
+        }
+    }
+
+    private void insertFixEvent(FixEventRecord event) throws SQLException, IOException {
+        long eventId;
+        try (PreparedStatement statement = connection.prepareStatement(INSERT_FIX_EVENT,
+                Statement.RETURN_GENERATED_KEYS)) {
+            statement.setTimestamp(1, Timestamp.valueOf(event.timestamp()));
+            statement.setString(2, event.reason());
+            statement.setInt(3, event.closedCount());
+            statement.executeUpdate();
+            try (ResultSet keys = statement.getGeneratedKeys()) {
+                if (!keys.next()) {
+                    throw new SQLException("No id generated for fix event.");
+                }
+                eventId = keys.getLong(1);
+            }
+        }
+
+        try (PreparedStatement statement = connection.prepareStatement(INSERT_FIX_PLAYER)) {
+            int[] pending = {0};
+            event.forEachPlayer((uuid, name) -> {
+                try {
+                    statement.setLong(1, eventId);
+                    statement.setObject(2, uuid);
+                    setNullableString(statement, 3, name);
+                    statement.addBatch();
+                    if (++pending[0] >= settings.batchSize()) {
+                        statement.executeBatch();
+                        pending[0] = 0;
+                    }
+                } catch (SQLException exception) {
+                    throw new IOException(exception);
+                }
+            });
+            if (pending[0] > 0) {
+                statement.executeBatch();
+            }
+        }
+    }
+
+    private void applyRetentionIfDue() {
+        if (settings.retentionDays() <= 0) {
+            return;
+        }
+        long now = System.nanoTime();
+        if (now - lastRetentionRun < RETENTION_INTERVAL_NANOS) {
+            return;
+        }
+        lastRetentionRun = now;
+
+        Timestamp cutoff = Timestamp.valueOf(LocalDateTime.now().minusDays(settings.retentionDays()));
+        try (PreparedStatement errors = connection.prepareStatement(
+                "DELETE FROM handled_errors WHERE logged_at < ?");
+             PreparedStatement fixEvents = connection.prepareStatement(
+                     "DELETE FROM fix_events WHERE logged_at < ?")) {
+            errors.setTimestamp(1, cutoff);
+            fixEvents.setTimestamp(1, cutoff);
+            int removed = errors.executeUpdate() + fixEvents.executeUpdate();
+            connection.commit();
+            if (removed > 0) {
+                consoleLogger.fine("Removed " + removed + " handled-error record(s) older than "
+                        + settings.retentionDays() + " day(s).");
+            }
+        } catch (SQLException exception) {
+            rollbackQuietly();
+            consoleLogger.log(Level.WARNING, "Failed to apply handled-error retention.", exception);
+        }
+    }
+
+    private void rollbackQuietly() {
+        try {
+            connection.rollback();
+        } catch (SQLException ignored) {
+            // the connection is unusable, the next batch will report it
+        }
+    }
+
+    private static void setNullableString(PreparedStatement statement, int index, String value) throws SQLException {
+        if (value == null) {
+            statement.setNull(index, Types.VARCHAR);
+        } else {
+            statement.setString(index, value);
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package dev.quantumfusion.zmenufix.logging.store;
+
+import java.time.LocalDateTime;
+import java.util.Objects;
+import java.util.logging.Level;
+
+public final class HandledError {
+
+    private final LocalDateTime timestamp;
+    private final Level level;
+    private final String message;
+    private final String errorType;
+    private final String errorMessage;
+    private final String stacktrace;
+
+    public HandledError(
+            LocalDateTime timestamp,
+            Level level,
+            String message,
+            String errorType,
+            String errorMessage,
+            String stacktrace
+    ) {
+        this.timestamp = Objects.requireNonNull(timestamp, "timestamp");
+        this.level = Objects.requireNonNull(level, "level");
+        this.message = Objects.requireNonNull(message, "message");
+        this.errorType = errorType;
+        this.errorMessage = errorMessage;
+        this.stacktrace = stacktrace;
+    }
+
+    public LocalDateTime timestamp() {
+        return timestamp;
+    }
+
+    public Level level() {
+        return level;
+    }
+
+    public String message() {
+        return message;
+    }
+
+    public String errorType() {
+        return errorType;
+    }
+
+    public String errorMessage() {
+        return errorMessage;
+    }
+
+    public String stacktrace() {
+        return stacktrace;
+    }
+}
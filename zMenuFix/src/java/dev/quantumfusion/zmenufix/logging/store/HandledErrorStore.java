@@ -0,0 +1,19 @@
+package dev.quantumfusion.zmenufix.logging.store;
+
+import java.io.IOException;
+import java.time.Duration;
+
+public interface HandledErrorStore {
+
+    void append(HandledError error) throws IOException;
+
+    /**
+     * Persists a completed fix event. The store takes ownership of the record's player spool and
+     * discards it once the players have been written.
+     */
+    void appendFixEvent(FixEventRecord event) throws IOException;
+
+    boolean flush(Duration deadline);
+
+    void close();
+}
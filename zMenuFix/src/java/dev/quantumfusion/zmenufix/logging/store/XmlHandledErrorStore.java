@@ -0,0 +1,241 @@
+package dev.quantumfusion.zmenufix.logging.store;
+
+import dev.quantumfusion.zmenufix.logging.XmlLogFormat;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+public final class XmlHandledErrorStore implements HandledErrorStore {
+
+    private static final String XML_HEADER = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>";
+    private static final String ROOT_ELEMENT = "handled-errors";
+    private static final String ROOT_OPEN = "<" + ROOT_ELEMENT + ">";
+    private static final String ROOT_CLOSE = "</" + ROOT_ELEMENT + ">";
+    private static final int TAIL_SCAN_BYTES = 4096;
+
+    private final Path logFile;
+    private final Lock writeLock = new ReentrantLock();
+
+    public XmlHandledErrorStore(Path logFile) throws IOException {
+        this.logFile = Objects.requireNonNull(logFile, "logFile");
+        writeLock.lock();
+        try {
+            ensureFileReady();
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    @Override
+    public void append(HandledError error) throws IOException {
+        Objects.requireNonNull(error, "error");
+        writeLock.lock();
+        try {
+            String xmlEntry = buildLogEntry(error);
+            appendBeforeRootClose(channel -> writeFully(channel, "  " + xmlEntry + System.lineSeparator()));
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    @Override
+    public void appendFixEvent(FixEventRecord event) throws IOException {
+        Objects.requireNonNull(event, "event");
+        String header = "<fix timestamp=\""
+                + XmlLogFormat.escapeForXml(XmlLogFormat.LOG_LINE_FORMAT.format(event.timestamp()))
+                + "\" reason=\"" + XmlLogFormat.escapeForXml(event.reason())
+                + "\" closed=\"" + event.closedCount() + "\">";
+        writeLock.lock();
+        try {
+            appendBeforeRootClose(channel -> {
+                BufferedWriter writer = new BufferedWriter(
+                        new OutputStreamWriter(Channels.newOutputStream(channel), StandardCharsets.UTF_8));
+                writer.write("  ");
+                writer.write(header);
+                writer.write(System.lineSeparator());
+                event.forEachPlayer((uuid, name) -> {
+                    writer.write("    <player");
+                    if (uuid != null) {
+                        writer.write(" uuid=\"");
+                        writer.write(uuid.toString());
+                        writer.write('"');
+                    }
+                    if (name != null) {
+                        writer.write(" name=\"");
+                        writer.write(XmlLogFormat.escapeForXml(name));
+                        writer.write('"');
+                    }
+                    writer.write("/>");
+                    writer.write(System.lineSeparator());
+                });
+                writer.write("  </fix>");
+                writer.write(System.lineSeparator());
+                writer.flush();
+            });
+        } finally {
+            writeLock.unlock();
+            event.discardSpool();
+        }
+    }
+
+    @Override
+    public boolean flush(Duration deadline) {
+        Objects.requireNonNull(deadline, "deadline");
+        try {
+            if (!writeLock.tryLock(deadline.toNanos(), TimeUnit.NANOSECONDS)) {
+                return false;
+            }
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+        try (FileChannel channel = FileChannel.open(logFile, StandardOpenOption.WRITE)) {
+            channel.force(true);
+            return true;
+        } catch (IOException exception) {
+            return false;
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    @Override
+    public void close() {
+        // every append is written through and the channel closed, nothing to release
+    }
+
+    private void ensureFileReady() throws IOException {
+        if (Files.notExists(logFile)) {
+            writeFreshDocument();
+            return;
+        }
+
+        if (!Files.isRegularFile(logFile)) {
+            throw new IOException("Logging target is not a regular file: " + logFile);
+        }
+
+        if (Files.size(logFile) == 0L) {
+            writeFreshDocument();
+        }
+    }
+
+    private void writeFreshDocument() throws IOException {
+        StringBuilder builder = new StringBuilder();
+        builder.append(XML_HEADER).append(System.lineSeparator())
+                .append(ROOT_OPEN).append(System.lineSeparator())
+                .append(ROOT_CLOSE).append(System.lineSeparator());
+        Files.writeString(logFile, builder.toString(), StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING);
+    }
+
+    private String buildLogEntry(HandledError error) {
+        StringBuilder builder = new StringBuilder();
+        builder.append("<log timestamp=\"")
+                .append(XmlLogFormat.escapeForXml(XmlLogFormat.LOG_LINE_FORMAT.format(error.timestamp())))
+                .append("\" level=\"")
+                .append(XmlLogFormat.escapeForXml(error.level().getName()))
+                .append("\">");
+        builder.append("<message>")
+                .append(XmlLogFormat.escapeForXml(error.message()))
+                .append("</message>");
+
+        if (error.errorType() != null) {
+            builder.append("<error type=\"")
+                    .append(XmlLogFormat.escapeForXml(error.errorType()))
+                    .append("\"");
+            String throwableMessage = error.errorMessage();
+            if (throwableMessage != null && !throwableMessage.isBlank()) {
+                builder.append(" message=\"")
+                        .append(XmlLogFormat.escapeForXml(throwableMessage))
+                        .append("\"");
+            }
+            builder.append("/>");
+            if (error.stacktrace() != null) {
+                builder.append("<stacktrace><![CDATA[")
+                        .append(error.stacktrace())
+                        .append("]]></stacktrace>");
+            }
+        }
+
+        builder.append("</log>");
+        return builder.toString();
+    }
+
+    private void appendBeforeRootClose(ChannelWriter body) throws IOException {
+        ensureFileReady();
+
+        try (FileChannel channel = FileChannel.open(logFile, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            long insertIndex = locateRootClose(channel);
+            if (insertIndex < 0L) {
+                // the root close went missing (crash or full disk mid-append); repair the tail, keep the history
+                insertIndex = channel.size();
+            }
+
+            boolean needsLineBreak = insertIndex > 0L && !precededByLineBreak(channel, insertIndex);
+            channel.truncate(insertIndex);
+            channel.position(insertIndex);
+            boolean written = false;
+            try {
+                if (needsLineBreak) {
+                    writeFully(channel, System.lineSeparator());
+                }
+                body.writeTo(channel);
+                written = true;
+            } finally {
+                if (!written) {
+                    channel.truncate(insertIndex);
+                    channel.position(insertIndex);
+                    if (needsLineBreak) {
+                        writeFully(channel, System.lineSeparator());
+                    }
+                }
+                writeFully(channel, ROOT_CLOSE + System.lineSeparator());
+            }
+        }
+    }
+
+    private long locateRootClose(FileChannel channel) throws IOException {
+        long size = channel.size();
+        int tailLength = (int) Math.min(size, TAIL_SCAN_BYTES);
+        ByteBuffer tail = ByteBuffer.allocate(tailLength);
+        long tailStart = size - tailLength;
+        while (tail.hasRemaining()) {
+            if (channel.read(tail, tailStart + tail.position()) < 0) {
+                break;
+            }
+        }
+        String tailText = new String(tail.array(), 0, tail.position(), StandardCharsets.ISO_8859_1);
+        int index = tailText.lastIndexOf(ROOT_CLOSE);
+        return index < 0 ? -1L : tailStart + index;
+    }
+
+    private boolean precededByLineBreak(FileChannel channel, long offset) throws IOException {
+        ByteBuffer previous = ByteBuffer.allocate(1);
+        channel.read(previous, offset - 1L);
+        return previous.position() == 1 && previous.get(0) == '\n';
+    }
+
+    private static void writeFully(FileChannel channel, String text) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(text.getBytes(StandardCharsets.UTF_8));
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    @FunctionalInterface
+    private interface ChannelWriter {
+        void writeTo(FileChannel channel) throws IOException;
+    }
+}
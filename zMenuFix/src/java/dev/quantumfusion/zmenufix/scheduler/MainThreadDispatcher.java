@@ -0,0 +1,240 @@
+package dev.quantumfusion.zmenufix.scheduler;
+
+import dev.quantumfusion.zmenufix.ZMenuFixPlugin;
+import dev.quantumfusion.zmenufix.logging.ZMenuFixFileLogger;
+import java.util.Locale;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import org.bukkit.Bukkit;
+
+public final class MainThreadDispatcher {
+
+    private final ZMenuFixPlugin plugin;
+    private final ZMenuFixFileLogger fileLogger;
+    private final long tickBudgetNanos;
+    private final TaskQueue queue = new TaskQueue();
+    private final LongAdder executed = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder carriedOver = new LongAdder();
+    private final LongAdder totalLatencyNanos = new LongAdder();
+    private final AtomicLong maxLatencyNanos = new AtomicLong();
+
+    private PlatformScheduler.Handle drainTask;
+
+    public MainThreadDispatcher(ZMenuFixPlugin plugin, ZMenuFixFileLogger fileLogger, long tickBudgetMillis) {
+        this.plugin = Objects.requireNonNull(plugin, "plugin");
+        this.fileLogger = Objects.requireNonNull(fileLogger, "fileLogger");
+        this.tickBudgetNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(1L, tickBudgetMillis));
+    }
+
+    public void start() {
+        if (drainTask != null) {
+            return;
+        }
+        queue.open();
+        drainTask = plugin.scheduler().runRepeating(this::drain, 1L, 1L);
+    }
+
+    public boolean submit(Runnable task) {
+        Objects.requireNonNull(task, "task");
+        if (!queue.offer(task)) {
+            rejected.increment();
+            return false;
+        }
+        return true;
+    }
+
+    public void shutdown() {
+        queue.close();
+        if (drainTask != null) {
+            drainTask.cancel();
+            drainTask = null;
+        }
+        if (Bukkit.isPrimaryThread()) {
+            runQueued(Long.MAX_VALUE);
+        }
+        int abandoned = queue.discard();
+        if (abandoned > 0) {
+            fileLogger.warn("Discarded " + abandoned + " primary-thread task(s) queued while ZMenuFix was disabling.");
+        }
+        fileLogger.debug("Primary-thread dispatcher stopped. " + stats());
+    }
+
+    public Stats stats() {
+        long count = executed.sum();
+        long meanNanos = count == 0L ? 0L : totalLatencyNanos.sum() / count;
+        return new Stats(count, queue.pending(), rejected.sum(), carriedOver.sum(), meanNanos, maxLatencyNanos.get());
+    }
+
+    private void drain() {
+        if (queue.pending() == 0) {
+            return;
+        }
+        runQueued(System.nanoTime() + tickBudgetNanos);
+        int remaining = queue.pending();
+        if (remaining > 0) {
+            carriedOver.add(remaining);
+        }
+    }
+
+    private void runQueued(long deadlineNanos) {
+        boolean ranAny = false;
+        QueuedTask queued;
+        while ((!ranAny || System.nanoTime() < deadlineNanos) && (queued = queue.poll()) != null) {
+            ranAny = true;
+            recordLatency(System.nanoTime() - queued.enqueuedAt);
+            try {
+                queued.task.run();
+            } catch (Throwable throwable) {
+                fileLogger.error("Primary-thread task failed.", throwable);
+            }
+        }
+    }
+
+    private void recordLatency(long latencyNanos) {
+        executed.increment();
+        totalLatencyNanos.add(latencyNanos);
+        long currentMax = maxLatencyNanos.get();
+        while (latencyNanos > currentMax && !maxLatencyNanos.compareAndSet(currentMax, latencyNanos)) {
+            currentMax = maxLatencyNanos.get();
+        }
+    }
+
+    /**
+     * Queue of accepted tasks. Offers share the read lock and closing takes the write lock, so once {@link #close()}
+     * returns no further task can slip in behind a drain and every accepted task is either polled or discarded.
+     */
+    static final class TaskQueue {
+
+        private final Queue<QueuedTask> tasks = new ConcurrentLinkedQueue<>();
+        private final AtomicInteger pending = new AtomicInteger();
+        private final ReadWriteLock gate = new ReentrantReadWriteLock();
+        private boolean accepting;
+
+        void open() {
+            gate.writeLock().lock();
+            try {
+                accepting = true;
+            } finally {
+                gate.writeLock().unlock();
+            }
+        }
+
+        boolean offer(Runnable task) {
+            gate.readLock().lock();
+            try {
+                if (!accepting) {
+                    return false;
+                }
+                tasks.offer(new QueuedTask(task, System.nanoTime()));
+                pending.incrementAndGet();
+                return true;
+            } finally {
+                gate.readLock().unlock();
+            }
+        }
+
+        void close() {
+            gate.writeLock().lock();
+            try {
+                accepting = false;
+            } finally {
+                gate.writeLock().unlock();
+            }
+        }
+
+        QueuedTask poll() {
+            QueuedTask queued = tasks.poll();
+            if (queued != null) {
+                pending.decrementAndGet();
+            }
+            return queued;
+        }
+
+        int discard() {
+            int discarded = 0;
+            while (poll() != null) {
+                discarded++;
+            }
+            return discarded;
+        }
+
+        int pending() {
+            return pending.get();
+        }
+    }
+
+    static final class QueuedTask {
+
+        private final Runnable task;
+        private final long enqueuedAt;
+
+        private QueuedTask(Runnable task, long enqueuedAt) {
+            this.task = task;
+            this.enqueuedAt = enqueuedAt;
+        }
+
+        Runnable task() {
+            return task;
+        }
+    }
+
+    public static final class Stats {
+
+        private final long executed;
+        private final int pending;
+        private final long rejected;
+        private final long carriedOver;
+        private final long meanLatencyNanos;
+        private final long maxLatencyNanos;
+
+        private Stats(long executed, int pending, long rejected, long carriedOver, long meanLatencyNanos,
+                      long maxLatencyNanos) {
+            this.executed = executed;
+            this.pending = pending;
+            this.rejected = rejected;
+            this.carriedOver = carriedOver;
+            this.meanLatencyNanos = meanLatencyNanos;
+            this.maxLatencyNanos = maxLatencyNanos;
+        }
+
+        public long executed() {
+            return executed;
+        }
+
+        public int pending() {
+            return pending;
+        }
+
+        public long rejected() {
+            return rejected;
+        }
+
+        public long carriedOver() {
+            return carriedOver;
+        }
+
+        public long meanLatencyNanos() {
+            return meanLatencyNanos;
+        }
+
+        public long maxLatencyNanos() {
+            return maxLatencyNanos;
+        }
+
+        @Override
+        public String toString() {
+            return String.format(Locale.US,
+                    "executed=%d pending=%d rejected=%d carried-over=%d mean-latency=%.2fms max-latency=%.2fms",
+                    executed, pending, rejected, carriedOver,
+                    meanLatencyNanos / 1_000_000.0D, maxLatencyNanos / 1_000_000.0D);
+        }
+    }
+}
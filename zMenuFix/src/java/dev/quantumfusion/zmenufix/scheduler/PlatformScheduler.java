@@ -0,0 +1,89 @@
+package dev.quantumfusion.zmenufix.scheduler;
+
+import io.papermc.paper.threadedregions.scheduler.ScheduledTask;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import org.bukkit.Bukkit;
+import org.bukkit.entity.Entity;
+import org.bukkit.plugin.Plugin;
+import org.bukkit.scheduler.BukkitTask;
+
+public final class PlatformScheduler {
+
+    private static final long MILLIS_PER_TICK = 50L;
+    private static final boolean FOLIA = detectFolia();
+
+    private final Plugin plugin;
+
+    public PlatformScheduler(Plugin plugin) {
+        this.plugin = Objects.requireNonNull(plugin, "plugin");
+    }
+
+    public static boolean isFolia() {
+        return FOLIA;
+    }
+
+    public Handle runRepeating(Runnable task, long delayTicks, long periodTicks) {
+        Objects.requireNonNull(task, "task");
+        if (FOLIA) {
+            ScheduledTask scheduled = Bukkit.getGlobalRegionScheduler()
+                    .runAtFixedRate(plugin, ignored -> task.run(), Math.max(1L, delayTicks), periodTicks);
+            return scheduled::cancel;
+        }
+        BukkitTask scheduled = Bukkit.getScheduler().runTaskTimer(plugin, task, delayTicks, periodTicks);
+        return scheduled::cancel;
+    }
+
+    public Handle runAsyncRepeating(Runnable task, long delayTicks, long periodTicks) {
+        Objects.requireNonNull(task, "task");
+        if (FOLIA) {
+            ScheduledTask scheduled = Bukkit.getAsyncScheduler().runAtFixedRate(plugin, ignored -> task.run(),
+                    Math.max(1L, delayTicks) * MILLIS_PER_TICK, periodTicks * MILLIS_PER_TICK, TimeUnit.MILLISECONDS);
+            return scheduled::cancel;
+        }
+        BukkitTask scheduled = Bukkit.getScheduler().runTaskTimerAsynchronously(plugin, task, delayTicks, periodTicks);
+        return scheduled::cancel;
+    }
+
+    public void runLater(Runnable task, long delayTicks) {
+        Objects.requireNonNull(task, "task");
+        if (FOLIA) {
+            Bukkit.getGlobalRegionScheduler().runDelayed(plugin, ignored -> task.run(), Math.max(1L, delayTicks));
+            return;
+        }
+        Bukkit.getScheduler().runTaskLater(plugin, task, delayTicks);
+    }
+
+    public void runAsync(Runnable task) {
+        Objects.requireNonNull(task, "task");
+        if (FOLIA) {
+            Bukkit.getAsyncScheduler().runNow(plugin, ignored -> task.run());
+            return;
+        }
+        Bukkit.getScheduler().runTaskAsynchronously(plugin, task);
+    }
+
+    public boolean runForEntity(Entity entity, Runnable task, Runnable retired) {
+        Objects.requireNonNull(entity, "entity");
+        Objects.requireNonNull(task, "task");
+        if (FOLIA) {
+            return entity.getScheduler().run(plugin, ignored -> task.run(), retired) != null;
+        }
+        Bukkit.getScheduler().runTask(plugin, task);
+        return true;
+    }
+
+    private static boolean detectFolia() {
+        try {
+            Class.forName("io.papermc.paper.threadedregions.RegionizedServer");
+            return true;
+        } catch (ClassNotFoundException ignored) {
+            return false;
+        }
+    }
+
+    @FunctionalInterface
+    public interface Handle {
+        void cancel();
+    }
+}
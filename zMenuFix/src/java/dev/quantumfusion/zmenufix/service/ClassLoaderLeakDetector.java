@@ -0,0 +1,361 @@
+package dev.quantumfusion.zmenufix.service;
+
+import dev.quantumfusion.zmenufix.ZMenuFixPlugin;
+import dev.quantumfusion.zmenufix.config.ZMenuFixConfiguration;
+import dev.quantumfusion.zmenufix.logging.ZMenuFixFileLogger;
+import dev.quantumfusion.zmenufix.scheduler.PlatformScheduler;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.ref.PhantomReference;
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Objects;
+import java.util.function.Consumer;
+import java.util.function.LongSupplier;
+import java.util.function.Predicate;
+import org.bukkit.Bukkit;
+import org.bukkit.entity.Player;
+import org.bukkit.event.HandlerList;
+import org.bukkit.inventory.Inventory;
+import org.bukkit.inventory.InventoryHolder;
+import org.bukkit.inventory.InventoryView;
+import org.bukkit.plugin.Plugin;
+import org.bukkit.plugin.RegisteredListener;
+import org.bukkit.scheduler.BukkitTask;
+
+public final class ClassLoaderLeakDetector {
+
+    private static final int MAX_TRACKED = 16;
+    private static final int MAX_RETAINERS = 10;
+    private static final long TICKS_PER_SECOND = 20L;
+    private static final long BRIDGED_TASK_GRACE_TICKS = 5L * TICKS_PER_SECOND;
+
+    private final ZMenuFixPlugin plugin;
+    private final ZMenuFixConfiguration.DiagnosticsSettings settings;
+    private final ZMenuFixFileLogger fileLogger;
+    private final Tracker tracker;
+
+    private PlatformScheduler.Handle checkTask;
+
+    public ClassLoaderLeakDetector(
+            ZMenuFixPlugin plugin,
+            ZMenuFixConfiguration.DiagnosticsSettings settings,
+            ZMenuFixFileLogger fileLogger
+    ) {
+        this.plugin = Objects.requireNonNull(plugin, "plugin");
+        this.settings = Objects.requireNonNull(settings, "settings");
+        this.fileLogger = Objects.requireNonNull(fileLogger, "fileLogger");
+        this.tracker = new Tracker(ClassLoaderLeakDetector::classUnloadingGcCycles,
+                ClassLoaderLeakDetector::isLoaderInUse, settings.leakGcCycles());
+    }
+
+    public void start() {
+        if (checkTask != null) {
+            return;
+        }
+        long intervalTicks = settings.leakCheckIntervalSeconds() * TICKS_PER_SECOND;
+        checkTask = plugin.scheduler().runRepeating(this::check, intervalTicks, intervalTicks);
+    }
+
+    public void stop() {
+        if (checkTask != null) {
+            checkTask.cancel();
+            checkTask = null;
+        }
+        tracker.clear();
+    }
+
+    public void watch(Plugin zMenuPlugin) {
+        Objects.requireNonNull(zMenuPlugin, "zMenuPlugin");
+        ClassLoader loader = zMenuPlugin.getClass().getClassLoader();
+        if (loader == null || loader == plugin.getClass().getClassLoader()) {
+            return;
+        }
+        if (tracker.isTracked(loader)) {
+            return;
+        }
+
+        String version = zMenuPlugin.getDescription() != null ? zMenuPlugin.getDescription().getVersion() : null;
+        String label = zMenuPlugin.getName() + (version == null ? "" : " v" + version)
+                + " (" + loader.getClass().getSimpleName() + "@" + Integer.toHexString(System.identityHashCode(loader))
+                + ")";
+        tracker.watch(label, loader);
+        fileLogger.debug("Watching ClassLoader of " + label + " for collection after disable.");
+
+        WeakReference<ClassLoader> weakLoader = new WeakReference<>(loader);
+        if (!PlatformScheduler.isFolia()) {
+            plugin.scheduler().runLater(() -> cancelBridgedTasks(weakLoader), BRIDGED_TASK_GRACE_TICKS);
+        }
+    }
+
+    private void check() {
+        tracker.check(new Tracker.Observer() {
+            @Override
+            public void collected(String label, long gcCycles) {
+                fileLogger.debug("ClassLoader of " + label + " was collected after " + gcCycles
+                        + " class-unloading GC cycle(s).");
+            }
+
+            @Override
+            public void reenabled(String label) {
+                fileLogger.debug("ClassLoader of " + label + " belongs to an enabled plugin again "
+                        + "(re-enabled in place); no longer watching it.");
+            }
+
+            @Override
+            public void leaking(String label, ClassLoader loader, long gcCycles) {
+                reportLeak(label, loader, gcCycles);
+            }
+        });
+    }
+
+    private void reportLeak(String label, ClassLoader loader, long gcCycles) {
+        List<String> retainers = new ArrayList<>();
+        findRetainers(loader, retainers::add);
+
+        // walking every thread is too slow for the primary thread, so finish the report asynchronously
+        plugin.scheduler().runAsync(() -> {
+            findThreadRetainers(loader, retainers::add);
+
+            StringBuilder message = new StringBuilder(256);
+            message.append("ClassLoader of ").append(label).append(" survived ").append(gcCycles)
+                    .append(" class-unloading GC cycle(s) after disable; it is likely leaking.");
+            if (retainers.isEmpty()) {
+                message.append(" No known retaining path found (check heap dump).");
+            } else {
+                message.append(" Possible retaining path(s): ");
+                int shown = Math.min(retainers.size(), MAX_RETAINERS);
+                message.append(String.join("; ", retainers.subList(0, shown)));
+                if (retainers.size() > shown) {
+                    message.append(" (+").append(retainers.size() - shown).append(" more)");
+                }
+            }
+            fileLogger.warn(message.toString());
+        });
+    }
+
+    private void findRetainers(ClassLoader loader, Consumer<String> sink) {
+        // on Folia a player's open inventory may only be read from the region thread that owns the player
+        Collection<? extends Player> players = PlatformScheduler.isFolia() ? List.of() : Bukkit.getOnlinePlayers();
+        for (Player player : players) {
+            InventoryView view = player.getOpenInventory();
+            Inventory top = view == null ? null : view.getTopInventory();
+            InventoryHolder holder = top == null ? null : top.getHolder(false);
+            if (holder != null && holder.getClass().getClassLoader() == loader) {
+                sink.accept("open inventory holder " + holder.getClass().getName() + " of player " + player.getName());
+            }
+        }
+
+        List<BukkitTask> pendingTasks = PlatformScheduler.isFolia() ? List.of() : Bukkit.getScheduler().getPendingTasks();
+        for (BukkitTask task : pendingTasks) {
+            Object body = taskBody(task);
+            if (body != null && body.getClass().getClassLoader() == loader) {
+                sink.accept("pending task #" + task.getTaskId() + " owned by " + task.getOwner().getName()
+                        + " (" + body.getClass().getName() + ")");
+            }
+        }
+
+        for (HandlerList handlerList : HandlerList.getHandlerLists()) {
+            for (RegisteredListener registered : handlerList.getRegisteredListeners()) {
+                if (registered.getListener().getClass().getClassLoader() == loader) {
+                    sink.accept("event listener " + registered.getListener().getClass().getName()
+                            + " registered by " + registered.getPlugin().getName());
+                }
+            }
+        }
+    }
+
+    private static void findThreadRetainers(ClassLoader loader, Consumer<String> sink) {
+        for (Thread thread : Thread.getAllStackTraces().keySet()) {
+            if (thread.getClass().getClassLoader() == loader) {
+                sink.accept("live thread '" + thread.getName() + "' of type " + thread.getClass().getName());
+            } else if (thread.getContextClassLoader() == loader) {
+                sink.accept("context ClassLoader of thread '" + thread.getName() + "'");
+            }
+        }
+    }
+
+    private void cancelBridgedTasks(WeakReference<ClassLoader> weakLoader) {
+        ClassLoader loader = weakLoader.get();
+        if (loader == null || isLoaderInUse(loader)) {
+            return;
+        }
+        int cancelled = 0;
+        for (BukkitTask task : Bukkit.getScheduler().getPendingTasks()) {
+            if (task.getOwner() != plugin) {
+                continue;
+            }
+            Object body = taskBody(task);
+            if (body != null && body.getClass().getClassLoader() == loader) {
+                task.cancel();
+                cancelled++;
+            }
+        }
+        if (cancelled > 0) {
+            fileLogger.info("Cancelled " + cancelled + " bridged zMenu task(s) still scheduled under ZMenuFix "
+                    + "after zMenu was disabled.");
+        }
+    }
+
+    private static boolean isLoaderInUse(ClassLoader loader) {
+        for (Plugin candidate : Bukkit.getPluginManager().getPlugins()) {
+            if (candidate.isEnabled() && candidate.getClass().getClassLoader() == loader) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static Object taskBody(BukkitTask task) {
+        Class<?> type = task.getClass();
+        while (type != null && type != Object.class) {
+            for (Field field : type.getDeclaredFields()) {
+                Class<?> fieldType = field.getType();
+                if (fieldType != Runnable.class && fieldType != Consumer.class && fieldType != Object.class) {
+                    continue;
+                }
+                if (!field.trySetAccessible()) {
+                    continue;
+                }
+                try {
+                    Object value = field.get(task);
+                    if (value != null) {
+                        return value;
+                    }
+                } catch (IllegalAccessException ignored) {
+                    // keep searching other fields
+                }
+            }
+            type = type.getSuperclass();
+        }
+        return null;
+    }
+
+    private static long classUnloadingGcCycles() {
+        long total = 0L;
+        for (GarbageCollectorMXBean bean : ManagementFactory.getGarbageCollectorMXBeans()) {
+            long count = bean.getCollectionCount();
+            if (count > 0L && unloadsClasses(bean.getName())) {
+                total += count;
+            }
+        }
+        return total;
+    }
+
+    /**
+     * Young collections never unload classes, so only old, full and concurrent-cycle collectors count towards
+     * {@code leak_gc_cycles}. G1 reports concurrent cycles separately from JDK 20; before that only its full
+     * collections are counted.
+     */
+    static boolean unloadsClasses(String collectorName) {
+        return switch (collectorName) {
+            case "G1 Old Generation", "G1 Concurrent GC", "PS MarkSweep", "MarkSweepCompact", "ConcurrentMarkSweep",
+                    "ZGC", "ZGC Cycles", "ZGC Major Cycles", "Shenandoah Cycles" -> true;
+            default -> false;
+        };
+    }
+
+    static final class Tracker {
+
+        private final LongSupplier gcCycles;
+        private final Predicate<ClassLoader> loaderInUse;
+        private final int leakGcCycles;
+        private final ReferenceQueue<ClassLoader> collected = new ReferenceQueue<>();
+        private final List<TrackedLoader> tracked = new ArrayList<>();
+
+        Tracker(LongSupplier gcCycles, Predicate<ClassLoader> loaderInUse, int leakGcCycles) {
+            this.gcCycles = Objects.requireNonNull(gcCycles, "gcCycles");
+            this.loaderInUse = Objects.requireNonNull(loaderInUse, "loaderInUse");
+            this.leakGcCycles = leakGcCycles;
+        }
+
+        boolean isTracked(ClassLoader loader) {
+            for (TrackedLoader entry : tracked) {
+                if (entry.weakLoader.get() == loader) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        int size() {
+            return tracked.size();
+        }
+
+        void watch(String label, ClassLoader loader) {
+            if (tracked.size() >= MAX_TRACKED) {
+                tracked.remove(0);
+            }
+            tracked.add(new TrackedLoader(label, loader, collected, gcCycles.getAsLong()));
+        }
+
+        void clear() {
+            tracked.clear();
+        }
+
+        void check(Observer observer) {
+            Reference<? extends ClassLoader> reference;
+            while ((reference = collected.poll()) != null) {
+                Iterator<TrackedLoader> iterator = tracked.iterator();
+                while (iterator.hasNext()) {
+                    TrackedLoader entry = iterator.next();
+                    if (entry.phantomLoader == reference) {
+                        iterator.remove();
+                        observer.collected(entry.label, gcCycles.getAsLong() - entry.gcCyclesAtDisable);
+                    }
+                }
+            }
+
+            long cycles = gcCycles.getAsLong();
+            Iterator<TrackedLoader> iterator = tracked.iterator();
+            while (iterator.hasNext()) {
+                TrackedLoader entry = iterator.next();
+                ClassLoader loader = entry.weakLoader.get();
+                if (loader == null) {
+                    continue;
+                }
+                if (loaderInUse.test(loader)) {
+                    iterator.remove();
+                    observer.reenabled(entry.label);
+                    continue;
+                }
+                if (entry.reported || cycles - entry.gcCyclesAtDisable < leakGcCycles) {
+                    continue;
+                }
+                entry.reported = true;
+                observer.leaking(entry.label, loader, cycles - entry.gcCyclesAtDisable);
+            }
+        }
+
+        interface Observer {
+
+            void collected(String label, long gcCycles);
+
+            void reenabled(String label);
+
+            void leaking(String label, ClassLoader loader, long gcCycles);
+        }
+    }
+
+    private static final class TrackedLoader {
+
+        private final String label;
+        private final WeakReference<ClassLoader> weakLoader;
+        private final PhantomReference<ClassLoader> phantomLoader;
+        private final long gcCyclesAtDisable;
+        private boolean reported;
+
+        private TrackedLoader(String label, ClassLoader loader, ReferenceQueue<ClassLoader> queue, long gcCycles) {
+            this.label = label;
+            this.weakLoader = new WeakReference<>(loader);
+            this.phantomLoader = new PhantomReference<>(loader, queue);
+            this.gcCyclesAtDisable = gcCycles;
+        }
+    }
+}
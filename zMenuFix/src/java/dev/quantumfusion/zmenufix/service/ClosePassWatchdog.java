@@ -0,0 +1,138 @@
+package dev.quantumfusion.zmenufix.service;
+
+import dev.quantumfusion.zmenufix.config.ZMenuFixConfiguration;
+import dev.quantumfusion.zmenufix.logging.ZMenuFixFileLogger;
+import java.util.Locale;
+import java.util.Objects;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+public final class ClosePassWatchdog {
+
+    private static final Session INACTIVE = new Session(null, null);
+
+    private final ZMenuFixConfiguration.DiagnosticsSettings settings;
+    private final ZMenuFixFileLogger fileLogger;
+    private final ScheduledExecutorService executor;
+
+    public ClosePassWatchdog(ZMenuFixConfiguration.DiagnosticsSettings settings, ZMenuFixFileLogger fileLogger) {
+        this.settings = Objects.requireNonNull(settings, "settings");
+        this.fileLogger = Objects.requireNonNull(fileLogger, "fileLogger");
+        this.executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "ZMenuFix-CloseWatchdog");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public static Session inactive() {
+        return INACTIVE;
+    }
+
+    public Session arm(String reason) {
+        Objects.requireNonNull(reason, "reason");
+        if (executor.isShutdown()) {
+            return INACTIVE;
+        }
+        Session session = new Session(this, reason);
+        session.sampler = executor.scheduleAtFixedRate(session::sample, settings.stallThresholdMillis(),
+                settings.stallSampleIntervalMillis(), TimeUnit.MILLISECONDS);
+        return session;
+    }
+
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    public static final class Session implements AutoCloseable {
+
+        private final ClosePassWatchdog watchdog;
+        private final String reason;
+        private final Thread thread;
+        private final long armedAt;
+
+        private volatile boolean active;
+        private volatile String currentPlayer;
+        private volatile String currentHolder;
+        private volatile ScheduledFuture<?> sampler;
+        private int samples;
+
+        private Session(ClosePassWatchdog watchdog, String reason) {
+            this.watchdog = watchdog;
+            this.reason = reason;
+            this.thread = Thread.currentThread();
+            this.armedAt = System.nanoTime();
+            this.active = watchdog != null;
+        }
+
+        public void enter(String playerName, Class<?> holderType) {
+            if (!active) {
+                return;
+            }
+            currentPlayer = playerName;
+            currentHolder = holderType == null ? "none" : holderType.getName();
+        }
+
+        public void exit() {
+            if (!active) {
+                return;
+            }
+            currentPlayer = null;
+            currentHolder = null;
+        }
+
+        @Override
+        public void close() {
+            if (!active) {
+                return;
+            }
+            active = false;
+            ScheduledFuture<?> scheduled = sampler;
+            if (scheduled != null) {
+                scheduled.cancel(false);
+            }
+        }
+
+        private void sample() {
+            if (!active) {
+                return;
+            }
+            StackTraceElement[] stack = thread.getStackTrace();
+            if (!active) {
+                return;
+            }
+
+            samples++;
+            long elapsedNanos = System.nanoTime() - armedAt;
+            String player = currentPlayer;
+            String holder = currentHolder;
+            String location = player == null
+                    ? "between closes"
+                    : "closing inventory of " + player + " (holder " + holder + ")";
+            String message = String.format(Locale.US,
+                    "Close pass (%s) stalled on thread '%s' for %.1f ms %s (sample %d/%d).",
+                    reason, thread.getName(), elapsedNanos / 1_000_000.0D, location,
+                    samples, watchdog.settings.stallMaxSamples());
+            ClosePassStallSample sample = new ClosePassStallSample("Stack sample of thread '" + thread.getName()
+                    + "' " + location);
+            sample.setStackTrace(stack);
+            watchdog.fileLogger.warnWithStacktrace(message, sample);
+
+            if (samples >= watchdog.settings.stallMaxSamples()) {
+                ScheduledFuture<?> scheduled = sampler;
+                if (scheduled != null) {
+                    scheduled.cancel(false);
+                }
+            }
+        }
+    }
+
+    static final class ClosePassStallSample extends Exception {
+
+        ClosePassStallSample(String message) {
+            super(message, null, false, true);
+        }
+    }
+}
@@ -0,0 +1,222 @@
+package dev.quantumfusion.zmenufix.service;
+
+import dev.quantumfusion.zmenufix.config.ZMenuFixConfiguration;
+import dev.quantumfusion.zmenufix.scheduler.PlatformScheduler;
+import java.util.Objects;
+import java.util.function.LongSupplier;
+import org.bukkit.Bukkit;
+
+public final class CloseStrategyPlanner {
+
+    private static final long NANOS_PER_TICK = 50_000_000L;
+    private static final long NANOS_PER_MILLI = 1_000_000L;
+    private static final double INITIAL_SCAN_NANOS = 5_000.0D;
+    private static final double INITIAL_CLOSE_NANOS = 50_000.0D;
+    private static final double INITIAL_FOLLOW_UP_NANOS = 20_000.0D;
+    private static final double INITIAL_CLOSED_RATIO = 1.0D;
+    private static final double HEADROOM_FRACTION = 0.5D;
+    private static final double LAGGING_TPS = 19.5D;
+
+    private final ZMenuFixConfiguration.FixSettings settings;
+    private final LongSupplier headroomNanos;
+    private final boolean folia;
+
+    private final Average scanCost = new Average(INITIAL_SCAN_NANOS);
+    private final Average closeCost = new Average(INITIAL_CLOSE_NANOS);
+    private final Average followUpCost = new Average(INITIAL_FOLLOW_UP_NANOS);
+    private final Average closedRatio = new Average(INITIAL_CLOSED_RATIO);
+
+    public CloseStrategyPlanner(ZMenuFixConfiguration.FixSettings settings) {
+        this(settings, CloseStrategyPlanner::tickHeadroomNanos, PlatformScheduler.isFolia());
+    }
+
+    CloseStrategyPlanner(ZMenuFixConfiguration.FixSettings settings, LongSupplier headroomNanos, boolean folia) {
+        this.settings = Objects.requireNonNull(settings, "settings");
+        this.headroomNanos = Objects.requireNonNull(headroomNanos, "headroomNanos");
+        this.folia = folia;
+    }
+
+    public synchronized Plan plan(int players) {
+        long headroom = headroomNanos.getAsLong();
+        double expectedClosed = players * closedRatio.value;
+        long closeNanos = Math.round(scanCost.value * (players - expectedClosed) + closeCost.value * expectedClosed);
+        long followUpNanos = notifiesPlayers() ? Math.round(followUpCost.value * expectedClosed) : 0L;
+
+        if (folia) {
+            int parallelism = Math.max(1, Math.min(players, Runtime.getRuntime().availableProcessors()));
+            long perRegion = (closeNanos + followUpNanos + parallelism - 1L) / parallelism;
+            return new Plan(Strategy.REGION_PARALLEL, players, perRegion, perRegion, 0L, headroom);
+        }
+
+        long minimumBudget = settings.dispatchTickBudgetMillis() * NANOS_PER_MILLI;
+        long budgetNanos = headroom < 0L
+                ? minimumBudget
+                : Math.max(minimumBudget, (long) (headroom * HEADROOM_FRACTION));
+        long workNanos = closeNanos + followUpNanos;
+        if (!settings.adaptiveClose() || workNanos <= budgetNanos || followUpNanos <= 0L) {
+            return new Plan(Strategy.IMMEDIATE, players, workNanos, closeNanos, workNanos, headroom);
+        }
+
+        // views are closed and recorded in the disable tick, only the player notifications are deferred
+        int maxTicks = settings.closeFollowUpMaxTicks();
+        long sliceNanos = Math.max(budgetNanos, (followUpNanos + maxTicks - 1L) / maxTicks);
+        long ticks = (followUpNanos + sliceNanos - 1L) / sliceNanos;
+        long predictedNanos = ticks * NANOS_PER_TICK + (followUpNanos - (ticks - 1L) * sliceNanos);
+        return new Plan(Strategy.DEFERRED_FOLLOW_UP, players, predictedNanos, closeNanos, sliceNanos, headroom);
+    }
+
+    public synchronized void record(PassCost cost) {
+        Objects.requireNonNull(cost, "cost");
+        double smoothing = settings.closeCostSmoothing();
+        synchronized (cost) {
+            int scanned = cost.examined - cost.closed;
+            if (scanned > 0) {
+                scanCost.add((double) cost.scanNanos / scanned, smoothing);
+            }
+            if (cost.closed > 0) {
+                closeCost.add((double) cost.closeNanos / cost.closed, smoothing);
+                followUpCost.add((double) cost.followUpNanos / cost.closed, smoothing);
+            }
+            if (cost.examined > 0) {
+                closedRatio.add((double) cost.closed / cost.examined, smoothing);
+            }
+        }
+    }
+
+    public synchronized double scanCostPerPlayerNanos() {
+        return scanCost.value;
+    }
+
+    public synchronized double closeCostPerViewNanos() {
+        return closeCost.value;
+    }
+
+    public synchronized double followUpCostPerViewNanos() {
+        return followUpCost.value;
+    }
+
+    public synchronized double closedRatio() {
+        return closedRatio.value;
+    }
+
+    private boolean notifiesPlayers() {
+        String message = settings.notifyMessage();
+        return settings.notifyPlayers() && message != null && !message.isBlank();
+    }
+
+    private static long tickHeadroomNanos() {
+        try {
+            double[] tps = Bukkit.getTPS();
+            if (tps != null && tps.length > 0 && tps[0] < LAGGING_TPS) {
+                return 0L;
+            }
+            double averageTickMillis = Bukkit.getAverageTickTime();
+            return Math.max(0L, NANOS_PER_TICK - Math.round(averageTickMillis * NANOS_PER_MILLI));
+        } catch (UnsupportedOperationException | NoSuchMethodError ignored) {
+            return -1L;
+        }
+    }
+
+    public enum Strategy {
+        IMMEDIATE,
+        DEFERRED_FOLLOW_UP,
+        REGION_PARALLEL
+    }
+
+    public static final class Plan {
+
+        private final Strategy strategy;
+        private final int players;
+        private final long predictedNanos;
+        private final long predictedCloseNanos;
+        private final long sliceBudgetNanos;
+        private final long headroomNanos;
+
+        private Plan(Strategy strategy, int players, long predictedNanos, long predictedCloseNanos,
+                     long sliceBudgetNanos, long headroomNanos) {
+            this.strategy = strategy;
+            this.players = players;
+            this.predictedNanos = predictedNanos;
+            this.predictedCloseNanos = predictedCloseNanos;
+            this.sliceBudgetNanos = sliceBudgetNanos;
+            this.headroomNanos = headroomNanos;
+        }
+
+        public Strategy strategy() {
+            return strategy;
+        }
+
+        public int players() {
+            return players;
+        }
+
+        public long predictedNanos() {
+            return predictedNanos;
+        }
+
+        public long predictedCloseNanos() {
+            return predictedCloseNanos;
+        }
+
+        public long sliceBudgetNanos() {
+            return sliceBudgetNanos;
+        }
+
+        public long headroomNanos() {
+            return headroomNanos;
+        }
+    }
+
+    /**
+     * Work measured during one close pass. Region threads add to it concurrently on Folia.
+     */
+    public static final class PassCost {
+
+        private int examined;
+        private int closed;
+        private long scanNanos;
+        private long closeNanos;
+        private long followUpNanos;
+
+        public synchronized void examined(boolean closedView, long nanos) {
+            examined++;
+            if (closedView) {
+                closed++;
+                closeNanos += nanos;
+            } else {
+                scanNanos += nanos;
+            }
+        }
+
+        public synchronized void followedUp(long nanos) {
+            followUpNanos += nanos;
+        }
+
+        public synchronized int closed() {
+            return closed;
+        }
+
+        public synchronized long closeNanos() {
+            return scanNanos + closeNanos;
+        }
+
+        public synchronized long followUpNanos() {
+            return followUpNanos;
+        }
+    }
+
+    private static final class Average {
+
+        private double value;
+        private boolean seeded;
+
+        private Average(double initial) {
+            this.value = initial;
+        }
+
+        private void add(double sample, double smoothing) {
+            value = seeded ? smoothing * sample + (1.0D - smoothing) * value : sample;
+            seeded = true;
+        }
+    }
+}
@@ -0,0 +1,157 @@
+package dev.quantumfusion.zmenufix.service;
+
+import dev.quantumfusion.zmenufix.ZMenuFixPlugin;
+import dev.quantumfusion.zmenufix.config.ZMenuFixConfiguration;
+import dev.quantumfusion.zmenufix.logging.ZMenuFixFileLogger;
+import dev.quantumfusion.zmenufix.scheduler.PlatformScheduler;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import org.bukkit.entity.Player;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.HandlerList;
+import org.bukkit.event.Listener;
+import org.bukkit.event.inventory.InventoryCloseEvent;
+import org.bukkit.inventory.InventoryHolder;
+
+public final class InventoryCloseTelemetry implements Listener {
+
+    private static final int MAX_BUCKETS_PER_FLUSH = 16;
+    private static final long TICKS_PER_SECOND = 20L;
+
+    private final ZMenuFixPlugin plugin;
+    private final ZMenuFixConfiguration.TelemetrySettings settings;
+    private final ZMenuFixFileLogger fileLogger;
+    private final Map<InventoryCloseEvent.Reason, Map<Class<?>, LongAdder>> counters = new ConcurrentHashMap<>();
+    private final AtomicLong sampleCounter = new AtomicLong();
+
+    private PlatformScheduler.Handle flushTask;
+
+    public InventoryCloseTelemetry(
+            ZMenuFixPlugin plugin,
+            ZMenuFixConfiguration.TelemetrySettings settings,
+            ZMenuFixFileLogger fileLogger
+    ) {
+        this.plugin = Objects.requireNonNull(plugin, "plugin");
+        this.settings = Objects.requireNonNull(settings, "settings");
+        this.fileLogger = Objects.requireNonNull(fileLogger, "fileLogger");
+    }
+
+    public void start() {
+        if (flushTask != null) {
+            return;
+        }
+        plugin.getServer().getPluginManager().registerEvents(this, plugin);
+        long intervalTicks = settings.flushIntervalSeconds() * TICKS_PER_SECOND;
+        flushTask = plugin.scheduler().runAsyncRepeating(this::flush, intervalTicks, intervalTicks);
+        fileLogger.debug("Inventory close telemetry enabled (flush every " + settings.flushIntervalSeconds()
+                + "s, sample rate " + describeSampleRate() + ").");
+    }
+
+    public void stop() {
+        HandlerList.unregisterAll(this);
+        if (flushTask != null) {
+            flushTask.cancel();
+            flushTask = null;
+        }
+        flush();
+        counters.clear();
+    }
+
+    public void forget(ClassLoader loader) {
+        for (Map<Class<?>, LongAdder> holders : counters.values()) {
+            holders.keySet().removeIf(holderType -> holderType.getClassLoader() == loader);
+        }
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onInventoryClose(InventoryCloseEvent event) {
+        if (!(event.getPlayer() instanceof Player player)) {
+            return;
+        }
+
+        InventoryHolder holder = event.getInventory().getHolder(false);
+        Class<?> holderType = holder == null ? Void.class : holder.getClass();
+        // increment inside compute so flush() cannot drop an adder between our lookup and increment
+        counters.computeIfAbsent(event.getReason(), ignored -> new ConcurrentHashMap<>())
+                .compute(holderType, (ignored, adder) -> {
+                    LongAdder counter = adder == null ? new LongAdder() : adder;
+                    counter.increment();
+                    return counter;
+                });
+
+        int sampleRate = settings.sampleRate();
+        if (sampleRate > 0 && sampleCounter.incrementAndGet() % sampleRate == 0L) {
+            fileLogger.debug("Inventory closed for player " + player.getName() + " due to " + event.getReason()
+                    + " (holder " + describeHolder(holderType) + ").");
+        }
+    }
+
+    private void flush() {
+        List<Bucket> buckets = new ArrayList<>();
+        long total = 0L;
+        for (Map.Entry<InventoryCloseEvent.Reason, Map<Class<?>, LongAdder>> reasonEntry : counters.entrySet()) {
+            for (Map.Entry<Class<?>, LongAdder> holderEntry : reasonEntry.getValue().entrySet()) {
+                long count = holderEntry.getValue().sumThenReset();
+                if (count == 0L) {
+                    reasonEntry.getValue().computeIfPresent(holderEntry.getKey(),
+                            (ignored, adder) -> adder.sum() == 0L ? null : adder);
+                    continue;
+                }
+                buckets.add(new Bucket(reasonEntry.getKey(), holderEntry.getKey(), count));
+                total += count;
+            }
+        }
+
+        if (total == 0L) {
+            return;
+        }
+
+        buckets.sort((left, right) -> Long.compare(right.count, left.count));
+        StringBuilder message = new StringBuilder(128);
+        message.append(String.format(Locale.US, "Inventory close telemetry (last %ds): %d close(s)",
+                settings.flushIntervalSeconds(), total));
+        int shown = Math.min(buckets.size(), MAX_BUCKETS_PER_FLUSH);
+        for (int i = 0; i < shown; i++) {
+            Bucket bucket = buckets.get(i);
+            message.append(i == 0 ? "; " : ", ")
+                    .append(bucket.reason).append('/').append(describeHolder(bucket.holderType))
+                    .append('=').append(bucket.count);
+        }
+        if (buckets.size() > shown) {
+            message.append(" (+").append(buckets.size() - shown).append(" more bucket(s))");
+        }
+        fileLogger.debug(message.toString());
+    }
+
+    private String describeSampleRate() {
+        return settings.sampleRate() > 0 ? "1/" + settings.sampleRate() : "off";
+    }
+
+    private static String describeHolder(Class<?> holderType) {
+        if (holderType == Void.class) {
+            return "none";
+        }
+        String simpleName = holderType.getSimpleName();
+        return simpleName.isEmpty() ? holderType.getName() : simpleName;
+    }
+
+    private static final class Bucket {
+
+        private final InventoryCloseEvent.Reason reason;
+        private final Class<?> holderType;
+        private final long count;
+
+        private Bucket(InventoryCloseEvent.Reason reason, Class<?> holderType, long count) {
+            this.reason = reason;
+            this.holderType = holderType;
+            this.count = count;
+        }
+    }
+}
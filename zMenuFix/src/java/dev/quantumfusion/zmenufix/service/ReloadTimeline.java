@@ -0,0 +1,329 @@
+package dev.quantumfusion.zmenufix.service;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Objects;
+import java.util.function.LongSupplier;
+import java.util.function.ToLongFunction;
+
+public final class ReloadTimeline {
+
+    private static final ReloadTimeline DISABLED = new ReloadTimeline(0);
+    private static final long ABSENT = -1L;
+
+    private final int historySize;
+    private final LongSupplier nanoClock;
+    private final ArrayDeque<Cycle> history;
+
+    private OpenCycle open;
+    private long nextCycleId = 1L;
+
+    public ReloadTimeline(int historySize) {
+        this(historySize, System::nanoTime);
+    }
+
+    ReloadTimeline(int historySize, LongSupplier nanoClock) {
+        this.historySize = Math.max(0, historySize);
+        this.nanoClock = Objects.requireNonNull(nanoClock, "nanoClock");
+        this.history = new ArrayDeque<>(Math.max(1, this.historySize));
+    }
+
+    public static ReloadTimeline disabled() {
+        return DISABLED;
+    }
+
+    public boolean enabled() {
+        return historySize > 0;
+    }
+
+    public synchronized void mark(Phase phase) {
+        Objects.requireNonNull(phase, "phase");
+        if (!enabled()) {
+            return;
+        }
+        long now = nanoClock.getAsLong();
+        if (phase == Phase.DISABLE_RECEIVED) {
+            if (open != null && open.enableHandled) {
+                store(open);
+            }
+            open = new OpenCycle(nextCycleId++, now, System.currentTimeMillis());
+            return;
+        }
+        if (open == null) {
+            return;
+        }
+        if (open.offsets[phase.ordinal()] == ABSENT) {
+            open.offsets[phase.ordinal()] = Math.max(0L, now - open.startedAtNanos);
+        }
+        if (phase == Phase.CLOSE_PASS_FINISHED) {
+            completeIfSettled();
+        }
+    }
+
+    public synchronized void enableHandled() {
+        if (open == null) {
+            return;
+        }
+        open.enableHandled = true;
+        if (open.offsets[Phase.BRIDGE_REAPPLIED.ordinal()] == ABSENT) {
+            // rebind_folia_scheduler is off or the bridge could not be applied
+            open.bridgeSkipped = true;
+        }
+        completeIfSettled();
+    }
+
+    public synchronized List<Cycle> cycles() {
+        return List.copyOf(history);
+    }
+
+    public synchronized Distribution totalDowntime() {
+        return distribution(Cycle::totalNanos);
+    }
+
+    public synchronized int bridgeSkippedCount() {
+        int count = 0;
+        for (Cycle cycle : history) {
+            if (cycle.bridgeSkipped) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    public synchronized Distribution distribution(Span span) {
+        Objects.requireNonNull(span, "span");
+        return distribution(cycle -> cycle.duration(span));
+    }
+
+    public Path exportChromeTrace(Path target) throws IOException {
+        Objects.requireNonNull(target, "target");
+        List<Cycle> cycles = cycles();
+        try (BufferedWriter writer = Files.newBufferedWriter(target, StandardCharsets.UTF_8)) {
+            writer.write("{\"displayTimeUnit\":\"ms\",\"traceEvents\":[");
+            writer.newLine();
+            writer.write("{\"name\":\"process_name\",\"ph\":\"M\",\"pid\":1,\"args\":{\"name\":\"zMenu reloads\"}}");
+            for (Cycle cycle : cycles) {
+                writer.write(',');
+                writer.newLine();
+                writer.write("{\"name\":\"thread_name\",\"ph\":\"M\",\"pid\":1,\"tid\":" + cycle.id
+                        + ",\"args\":{\"name\":\"reload #" + cycle.id + "\"}}");
+                if (cycle.totalNanos() != ABSENT) {
+                    writeSpan(writer, cycle, cycle.bridgeSkipped ? "downtime (bridge skipped)" : "downtime", 0L,
+                            cycle.totalNanos());
+                }
+                for (Span span : Span.values()) {
+                    long duration = cycle.duration(span);
+                    if (duration != ABSENT) {
+                        writeSpan(writer, cycle, span.label, cycle.offset(span.from), duration);
+                    }
+                }
+                for (Phase phase : Phase.values()) {
+                    if (cycle.has(phase)) {
+                        writeInstant(writer, cycle, phase.label, cycle.offset(phase));
+                    }
+                }
+                if (cycle.bridgeSkipped && cycle.has(Phase.ENABLE_RECEIVED)) {
+                    writeInstant(writer, cycle, Phase.BRIDGE_REAPPLIED.label + " (skipped)",
+                            cycle.offset(Phase.ENABLE_RECEIVED));
+                }
+            }
+            writer.newLine();
+            writer.write("]}");
+            writer.newLine();
+        }
+        return target;
+    }
+
+    private void completeIfSettled() {
+        if (open.enableHandled && open.offsets[Phase.CLOSE_PASS_FINISHED.ordinal()] != ABSENT) {
+            store(open);
+            open = null;
+        }
+    }
+
+    private void store(OpenCycle cycle) {
+        if (history.size() >= historySize) {
+            history.removeFirst();
+        }
+        history.addLast(new Cycle(cycle.id, cycle.startedAtMillis, cycle.offsets.clone(), cycle.bridgeSkipped));
+    }
+
+    private Distribution distribution(ToLongFunction<Cycle> metric) {
+        long[] values = new long[history.size()];
+        int count = 0;
+        for (Cycle cycle : history) {
+            long value = metric.applyAsLong(cycle);
+            if (value != ABSENT) {
+                values[count++] = value;
+            }
+        }
+        long[] sorted = Arrays.copyOf(values, count);
+        Arrays.sort(sorted);
+        return new Distribution(sorted);
+    }
+
+    private static void writeSpan(BufferedWriter writer, Cycle cycle, String name, long offsetNanos, long durationNanos)
+            throws IOException {
+        writer.write(',');
+        writer.newLine();
+        writer.write("{\"name\":\"" + name + "\",\"cat\":\"zmenu-reload\",\"ph\":\"X\",\"pid\":1,\"tid\":" + cycle.id
+                + ",\"ts\":" + traceMicros(cycle, offsetNanos)
+                + ",\"dur\":" + String.format(Locale.US, "%.3f", durationNanos / 1_000.0D) + "}");
+    }
+
+    private static void writeInstant(BufferedWriter writer, Cycle cycle, String name, long offsetNanos)
+            throws IOException {
+        writer.write(',');
+        writer.newLine();
+        writer.write("{\"name\":\"" + name + "\",\"cat\":\"zmenu-reload\",\"ph\":\"i\",\"s\":\"t\""
+                + ",\"pid\":1,\"tid\":" + cycle.id + ",\"ts\":" + traceMicros(cycle, offsetNanos) + "}");
+    }
+
+    private static String traceMicros(Cycle cycle, long offsetNanos) {
+        return String.format(Locale.US, "%.3f", cycle.startedAtMillis * 1_000.0D + offsetNanos / 1_000.0D);
+    }
+
+    public enum Phase {
+        DISABLE_RECEIVED("disable received"),
+        CLOSE_PASS_STARTED("close pass start"),
+        CLOSE_PASS_FINISHED("close pass end"),
+        BRIDGE_CLEARED("bridge cleared"),
+        ENABLE_RECEIVED("enable received"),
+        BRIDGE_REAPPLIED("bridge re-applied");
+
+        private final String label;
+
+        Phase(String label) {
+            this.label = label;
+        }
+
+        public String label() {
+            return label;
+        }
+    }
+
+    public enum Span {
+        CLOSE_QUEUED("close queued", Phase.DISABLE_RECEIVED, Phase.CLOSE_PASS_STARTED),
+        CLOSE_PASS("close pass", Phase.CLOSE_PASS_STARTED, Phase.CLOSE_PASS_FINISHED),
+        BRIDGE_RELEASE("bridge release", Phase.DISABLE_RECEIVED, Phase.BRIDGE_CLEARED),
+        ZMENU_OFFLINE("zMenu offline", Phase.DISABLE_RECEIVED, Phase.ENABLE_RECEIVED),
+        BRIDGE_REAPPLY("bridge re-apply", Phase.ENABLE_RECEIVED, Phase.BRIDGE_REAPPLIED);
+
+        private final String label;
+        private final Phase from;
+        private final Phase to;
+
+        Span(String label, Phase from, Phase to) {
+            this.label = label;
+            this.from = from;
+            this.to = to;
+        }
+
+        public String label() {
+            return label;
+        }
+    }
+
+    public static final class Cycle {
+
+        private final long id;
+        private final long startedAtMillis;
+        private final long[] offsets;
+        private final boolean bridgeSkipped;
+
+        private Cycle(long id, long startedAtMillis, long[] offsets, boolean bridgeSkipped) {
+            this.id = id;
+            this.startedAtMillis = startedAtMillis;
+            this.offsets = offsets;
+            this.bridgeSkipped = bridgeSkipped;
+        }
+
+        public long id() {
+            return id;
+        }
+
+        public long startedAtMillis() {
+            return startedAtMillis;
+        }
+
+        public boolean has(Phase phase) {
+            return offset(phase) != ABSENT;
+        }
+
+        public long offset(Phase phase) {
+            return phase == Phase.DISABLE_RECEIVED ? 0L : offsets[phase.ordinal()];
+        }
+
+        public long duration(Span span) {
+            if (!has(span.from) || !has(span.to)) {
+                return ABSENT;
+            }
+            return Math.max(0L, offset(span.to) - offset(span.from));
+        }
+
+        /**
+         * Whether the enable was handled without re-applying the scheduler bridge.
+         */
+        public boolean bridgeSkipped() {
+            return bridgeSkipped;
+        }
+
+        /**
+         * Downtime from the disable until zMenu is usable again: the later of enable received and bridge re-applied.
+         * When the re-apply was {@linkplain #bridgeSkipped() skipped} it ends at enable received.
+         */
+        public long totalNanos() {
+            return Math.max(offset(Phase.ENABLE_RECEIVED), offset(Phase.BRIDGE_REAPPLIED));
+        }
+    }
+
+    public static final class Distribution {
+
+        private final long[] sorted;
+
+        private Distribution(long[] sorted) {
+            this.sorted = sorted;
+        }
+
+        public int count() {
+            return sorted.length;
+        }
+
+        public long percentileNanos(double percentile) {
+            if (sorted.length == 0) {
+                return ABSENT;
+            }
+            int rank = (int) Math.ceil(percentile / 100.0D * sorted.length);
+            return sorted[Math.max(0, Math.min(sorted.length - 1, rank - 1))];
+        }
+
+        public long maxNanos() {
+            return sorted.length == 0 ? ABSENT : sorted[sorted.length - 1];
+        }
+    }
+
+    private static final class OpenCycle {
+
+        private final long id;
+        private final long startedAtNanos;
+        private final long startedAtMillis;
+        private final long[] offsets = new long[Phase.values().length];
+        private boolean enableHandled;
+        private boolean bridgeSkipped;
+
+        private OpenCycle(long id, long startedAtNanos, long startedAtMillis) {
+            this.id = id;
+            this.startedAtNanos = startedAtNanos;
+            this.startedAtMillis = startedAtMillis;
+            Arrays.fill(offsets, ABSENT);
+            offsets[Phase.DISABLE_RECEIVED.ordinal()] = 0L;
+        }
+    }
+}
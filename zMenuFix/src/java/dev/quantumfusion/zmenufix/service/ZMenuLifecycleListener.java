@@ -2,13 +2,21 @@ package dev.quantumfusion.zmenufix.service;
 
 import dev.quantumfusion.zmenufix.ZMenuFixPlugin;
 import dev.quantumfusion.zmenufix.config.ZMenuFixConfiguration;
+import dev.quantumfusion.zmenufix.logging.FixEventStream;
+import dev.quantumfusion.zmenufix.logging.FlightRecorder;
 import dev.quantumfusion.zmenufix.logging.ZMenuFixFileLogger;
+import dev.quantumfusion.zmenufix.scheduler.PlatformScheduler;
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
 import java.util.Locale;
 import java.util.Objects;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.logging.Level;
 import org.bukkit.Bukkit;
 import org.bukkit.ChatColor;
@@ -16,7 +24,6 @@ import org.bukkit.entity.Player;
 import org.bukkit.event.EventHandler;
 import org.bukkit.event.EventPriority;
 import org.bukkit.event.Listener;
-import org.bukkit.event.inventory.InventoryCloseEvent;
 import org.bukkit.event.inventory.InventoryType;
 import org.bukkit.event.server.PluginDisableEvent;
 import org.bukkit.event.server.PluginEnableEvent;
@@ -29,11 +36,14 @@ import org.bukkit.plugin.Plugin;
 public final class ZMenuLifecycleListener implements Listener {
 
     private static final String ZMENU_NAME = "zMenu";
+    private static final Duration SHUTDOWN_FLUSH_DEADLINE = Duration.ofSeconds(2);
 
     private final ZMenuFixPlugin plugin;
     private final ZMenuFixConfiguration configuration;
     private final ZMenuFixFileLogger fileLogger;
     private final AtomicBoolean zMenuEnabledFlag;
+    private final CloseStrategyPlanner closePlanner;
+    private final Set<PendingClosePass> pendingPasses = ConcurrentHashMap.newKeySet();
 
     public ZMenuLifecycleListener(
             ZMenuFixPlugin plugin,
@@ -45,6 +55,7 @@ public final class ZMenuLifecycleListener implements Listener {
         this.configuration = Objects.requireNonNull(configuration, "configuration");
         this.fileLogger = Objects.requireNonNull(fileLogger, "fileLogger");
         this.zMenuEnabledFlag = Objects.requireNonNull(zMenuEnabledFlag, "zMenuEnabledFlag");
+        this.closePlanner = new CloseStrategyPlanner(configuration.fix());
     }
 
     public void handleZMenuEnabled(Plugin zMenu) {
@@ -56,14 +67,17 @@ public final class ZMenuLifecycleListener implements Listener {
             return;
         }
 
+        plugin.reloadTimeline().mark(ReloadTimeline.Phase.ENABLE_RECEIVED);
+        String version = zMenu.getDescription() != null ? zMenu.getDescription().getVersion() : null;
         if (zMenuEnabledFlag.compareAndSet(false, true)) {
-            String version = zMenu.getDescription() != null ? zMenu.getDescription().getVersion() : null;
             String versionInfo = version == null ? "unknown version" : "v" + version;
             plugin.getLogger().info("Detected zMenu " + versionInfo + " as enabled.");
             fileLogger.info("Detected zMenu " + versionInfo + " as enabled.");
         }
 
+        plugin.flightRecorder().record(FlightRecorder.EventType.ZMENU_ENABLED, version);
         plugin.attemptSchedulerBridge(zMenu);
+        plugin.reloadTimeline().enableHandled();
     }
 
     @EventHandler(priority = EventPriority.MONITOR)
@@ -92,58 +106,186 @@ public final class ZMenuLifecycleListener implements Listener {
         }
 
         zMenuEnabledFlag.set(false);
-        plugin.clearSchedulerBridge(event.getPlugin());
+        plugin.flightRecorder().record(FlightRecorder.EventType.ZMENU_DISABLED,
+                plugin.isServerStopping() ? "server stopping" : null);
+        if (plugin.isServerStopping()) {
+            plugin.clearSchedulerBridge(event.getPlugin());
+            closeInventoriesForShutdown();
+            return;
+        }
+        plugin.reloadTimeline().mark(ReloadTimeline.Phase.DISABLE_RECEIVED);
+        plugin.releaseZMenuReferences(event.getPlugin());
         fileLogger.info("zMenu disable detected. Initiating inventory close routine.");
         plugin.executeOnPrimaryThread(() -> closeInventories("PluginDisableEvent"));
     }
 
+    private void closeInventoriesForShutdown() {
+        long startedAt = System.nanoTime();
+        int closedCount = 0;
+        // Folia regions are halting at this point and views cannot be touched off their owning region.
+        Collection<? extends Player> onlinePlayers = PlatformScheduler.isFolia() ? List.of() : Bukkit.getOnlinePlayers();
+        for (Player player : onlinePlayers) {
+            InventoryView view = player.getOpenInventory();
+            if (view == null || !hasExternalView(view, view.getTopInventory())) {
+                continue;
+            }
+            if (!configuration.fix().closeAllInventories() && !isLikelyZMenuView(view.getTopInventory())) {
+                continue;
+            }
+            try {
+                player.closeInventory();
+                closedCount++;
+            } catch (IllegalPluginAccessException ignored) {
+                // the server is stopping, the player is about to be disconnected anyway
+            }
+        }
+        long closedAt = System.nanoTime();
+
+        plugin.flightRecorder().record(FlightRecorder.EventType.SHUTDOWN_CLOSE_PASS, closedCount,
+                closedAt - startedAt, null);
+        plugin.flightRecorder().force();
+        boolean flushed = fileLogger.flush(SHUTDOWN_FLUSH_DEADLINE);
+        long flushedAt = System.nanoTime();
+
+        fileLogger.infoRecorded(String.format(Locale.US,
+                "Server shutdown: closed %d inventory view(s) in %.2f ms, logger flush %s in %.2f ms.",
+                closedCount,
+                (closedAt - startedAt) / 1_000_000.0D,
+                flushed ? "completed" : "timed out",
+                (flushedAt - closedAt) / 1_000_000.0D));
+    }
+
     private void closeInventories(String reason) {
         Collection<? extends Player> onlinePlayers = Bukkit.getOnlinePlayers();
         if (onlinePlayers.isEmpty()) {
             fileLogger.info("No online players to process for zMenu inventory closure (" + reason + ").");
+            plugin.reloadTimeline().mark(ReloadTimeline.Phase.CLOSE_PASS_STARTED);
+            plugin.reloadTimeline().mark(ReloadTimeline.Phase.CLOSE_PASS_FINISHED);
             return;
         }
 
-        List<String> affectedPlayers = new ArrayList<>();
-        for (Player player : onlinePlayers) {
-            if (player == null || !player.isOnline() || !player.isValid()) {
-                continue;
-            }
+        CloseStrategyPlanner.Plan plan = closePlanner.plan(onlinePlayers.size());
+        if (plan.strategy() == CloseStrategyPlanner.Strategy.REGION_PARALLEL) {
+            new RegionClosePass(reason, onlinePlayers, plan).start();
+        } else {
+            closeInventoriesOnPrimaryThread(reason, onlinePlayers, plan);
+        }
+    }
 
-            InventoryView view = player.getOpenInventory();
-            if (view == null) {
-                continue;
-            }
+    /**
+     * Completes close passes whose deferred notifications are still pending. Called while ZMenuFix disables so every
+     * pass is reported and its notifications are not lost.
+     */
+    public void flushPendingWork() {
+        for (PendingClosePass pass : List.copyOf(pendingPasses)) {
+            pass.flush();
+        }
+    }
 
-            Inventory top = view.getTopInventory();
-            if (!hasExternalView(view, top)) {
-                continue;
+    private void closeInventoriesOnPrimaryThread(String reason, Collection<? extends Player> onlinePlayers,
+                                                 CloseStrategyPlanner.Plan plan) {
+        long startedAt = System.nanoTime();
+        plugin.flightRecorder().record(FlightRecorder.EventType.CLOSE_PASS_STARTED, reason);
+        plugin.reloadTimeline().mark(ReloadTimeline.Phase.CLOSE_PASS_STARTED);
+        CloseStrategyPlanner.PassCost cost = new CloseStrategyPlanner.PassCost();
+        boolean deferNotifications = plan.strategy() == CloseStrategyPlanner.Strategy.DEFERRED_FOLLOW_UP;
+        List<UUID> toNotify = new ArrayList<>();
+        long closeElapsedNanos;
+        try (FixEventStream fixEvent = fileLogger.openFixEvent(reason);
+             ClosePassWatchdog.Session watchdog = plugin.armCloseWatchdog(reason)) {
+            for (Player player : onlinePlayers) {
+                long examinedAt = System.nanoTime();
+                boolean closedView = closeView(player, fixEvent, watchdog);
+                cost.examined(closedView, System.nanoTime() - examinedAt);
+                if (!closedView) {
+                    continue;
+                }
+                if (deferNotifications) {
+                    toNotify.add(player.getUniqueId());
+                } else {
+                    long notifiedAt = System.nanoTime();
+                    notifyPlayer(player);
+                    cost.followedUp(System.nanoTime() - notifiedAt);
+                }
             }
+            closeElapsedNanos = finishCloseWork(fixEvent, reason, startedAt);
+        }
 
-            if (!configuration.fix().closeAllInventories() && !isLikelyZMenuView(top)) {
-                continue;
-            }
+        NotificationPass notifications = new NotificationPass(reason, startedAt, closeElapsedNanos, plan, cost,
+                toNotify);
+        if (deferNotifications) {
+            notifications.schedule();
+        } else {
+            notifications.flush();
+        }
+    }
 
-            try {
-                player.closeInventory();
-            } catch (IllegalPluginAccessException exception) {
-                fileLogger.warn("Failed to close inventory for " + player.getName()
-                        + " because zMenu is already disabled: " + exception.getMessage());
-                continue;
-            }
-            affectedPlayers.add(player.getName());
-            notifyPlayer(player);
+    private boolean closeView(Player player, FixEventStream fixEvent, ClosePassWatchdog.Session watchdog) {
+        if (player == null || !player.isOnline() || !player.isValid()) {
+            return false;
+        }
+
+        InventoryView view = player.getOpenInventory();
+        if (view == null) {
+            return false;
         }
 
-        int closedCount = affectedPlayers.size();
-        String summary = String.format(Locale.US,
-                "Closed %d inventory view(s) after zMenu disable via %s.", closedCount, reason);
-        fileLogger.info(summary);
-        fileLogger.logFixEventXml(reason, closedCount, List.copyOf(affectedPlayers));
+        Inventory top = view.getTopInventory();
+        if (!hasExternalView(view, top)) {
+            return false;
+        }
 
-        if (plugin.isDebug() && !affectedPlayers.isEmpty()) {
-            fileLogger.debug("Players affected: " + String.join(", ", affectedPlayers));
+        if (!configuration.fix().closeAllInventories() && !isLikelyZMenuView(top)) {
+            return false;
         }
+
+        InventoryHolder holder = top.getHolder(false);
+        watchdog.enter(player.getName(), holder == null ? null : holder.getClass());
+        try {
+            player.closeInventory();
+        } catch (IllegalPluginAccessException exception) {
+            fileLogger.warn("Failed to close inventory for " + player.getName()
+                    + " because zMenu is already disabled: " + exception.getMessage());
+            return false;
+        } finally {
+            watchdog.exit();
+        }
+        fixEvent.record(player.getUniqueId(), player.getName());
+        plugin.flightRecorder().recordPlayer(FlightRecorder.EventType.PLAYER_CLOSED, player.getUniqueId(),
+                player.getName());
+        return true;
+    }
+
+    private long finishCloseWork(FixEventStream fixEvent, String reason, long startedAt) {
+        long elapsedNanos = System.nanoTime() - startedAt;
+        plugin.flightRecorder().record(FlightRecorder.EventType.CLOSE_PASS_FINISHED, fixEvent.closedCount(),
+                elapsedNanos, reason);
+        fixEvent.complete();
+        plugin.reloadTimeline().mark(ReloadTimeline.Phase.CLOSE_PASS_FINISHED);
+        return elapsedNanos;
+    }
+
+    private void reportClosePass(String reason, long startedAt, long closeElapsedNanos,
+                                 CloseStrategyPlanner.Plan plan, CloseStrategyPlanner.PassCost cost, int slices) {
+        long elapsedNanos = System.nanoTime() - startedAt;
+        closePlanner.record(cost);
+        fileLogger.info(String.format(Locale.US,
+                "Close pass (%s) used %s for %d player(s): closed %d view(s) in %.2f ms (predicted %.2f ms), "
+                        + "done in %.2f ms (predicted %.2f ms, %.2f ms of notifications in %d slice(s)); "
+                        + "cost now %.1f us/close + %.1f us/notification, %.1f us/scan, tick headroom %s.",
+                reason, plan.strategy(), plan.players(), cost.closed(),
+                closeElapsedNanos / 1_000_000.0D,
+                plan.predictedCloseNanos() / 1_000_000.0D,
+                elapsedNanos / 1_000_000.0D,
+                plan.predictedNanos() / 1_000_000.0D,
+                cost.followUpNanos() / 1_000_000.0D,
+                slices,
+                closePlanner.closeCostPerViewNanos() / 1_000.0D,
+                closePlanner.followUpCostPerViewNanos() / 1_000.0D,
+                closePlanner.scanCostPerPlayerNanos() / 1_000.0D,
+                plan.headroomNanos() < 0L
+                        ? "unavailable"
+                        : String.format(Locale.US, "%.2f ms", plan.headroomNanos() / 1_000_000.0D)));
     }
 
     private boolean hasExternalView(InventoryView view, Inventory topInventory) {
@@ -183,16 +325,158 @@ public final class ZMenuLifecycleListener implements Listener {
         player.sendMessage(parsed);
     }
 
-    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
-    public void onInventoryClose(InventoryCloseEvent event) {
-        if (!configuration.enabled() || !plugin.isDebug()) {
-            return;
+    private interface PendingClosePass {
+        void flush();
+    }
+
+    private final class NotificationPass implements PendingClosePass {
+
+        private final String reason;
+        private final long startedAt;
+        private final long closeElapsedNanos;
+        private final CloseStrategyPlanner.Plan plan;
+        private final CloseStrategyPlanner.PassCost cost;
+        private final List<UUID> players;
+
+        private int next;
+        private int slices;
+        private boolean finished;
+        private PlatformScheduler.Handle task;
+
+        private NotificationPass(String reason, long startedAt, long closeElapsedNanos, CloseStrategyPlanner.Plan plan,
+                                 CloseStrategyPlanner.PassCost cost, List<UUID> players) {
+            this.reason = reason;
+            this.startedAt = startedAt;
+            this.closeElapsedNanos = closeElapsedNanos;
+            this.plan = plan;
+            this.cost = cost;
+            this.players = players;
         }
 
-        if (!(event.getPlayer() instanceof Player player)) {
-            return;
+        private void schedule() {
+            if (!plugin.isEnabled()) {
+                // a pass drained from the dispatcher while ZMenuFix disables can no longer schedule tasks
+                flush();
+                return;
+            }
+            pendingPasses.add(this);
+            task = plugin.scheduler().runRepeating(this::tick, 1L, 1L);
+        }
+
+        private void tick() {
+            if (runSlice(plan.sliceBudgetNanos())) {
+                finish();
+            }
+        }
+
+        @Override
+        public void flush() {
+            runSlice(Long.MAX_VALUE);
+            finish();
+        }
+
+        private boolean runSlice(long budgetNanos) {
+            long sliceStartedAt = System.nanoTime();
+            while (next < players.size()) {
+                long notifiedAt = System.nanoTime();
+                Player player = Bukkit.getPlayer(players.get(next++));
+                if (player != null && player.isOnline()) {
+                    notifyPlayer(player);
+                }
+                cost.followedUp(System.nanoTime() - notifiedAt);
+                if (System.nanoTime() - sliceStartedAt >= budgetNanos) {
+                    break;
+                }
+            }
+            slices++;
+            return next >= players.size();
         }
 
-        fileLogger.debug("Inventory closed for player " + player.getName() + " due to " + event.getReason());
+        private void finish() {
+            if (finished) {
+                return;
+            }
+            finished = true;
+            if (task != null) {
+                task.cancel();
+            }
+            pendingPasses.remove(this);
+            reportClosePass(reason, startedAt, closeElapsedNanos, plan, cost, slices);
+        }
+    }
+
+    private final class RegionClosePass implements PendingClosePass {
+
+        private final String reason;
+        private final List<Player> players;
+        private final CloseStrategyPlanner.Plan plan;
+        private final CloseStrategyPlanner.PassCost cost = new CloseStrategyPlanner.PassCost();
+        private final long startedAt;
+        private final FixEventStream fixEvent;
+        private final AtomicInteger remaining;
+        private final AtomicBoolean finished = new AtomicBoolean();
+
+        private RegionClosePass(String reason, Collection<? extends Player> onlinePlayers,
+                                CloseStrategyPlanner.Plan plan) {
+            this.reason = reason;
+            // the countdown and the dispatch loop must see the same players, or a join/quit strands the fix event
+            this.players = List.copyOf(onlinePlayers);
+            this.plan = plan;
+            this.startedAt = System.nanoTime();
+            plugin.flightRecorder().record(FlightRecorder.EventType.CLOSE_PASS_STARTED, reason);
+            plugin.reloadTimeline().mark(ReloadTimeline.Phase.CLOSE_PASS_STARTED);
+            this.fixEvent = fileLogger.openFixEvent(reason);
+            this.remaining = new AtomicInteger(players.size());
+        }
+
+        private void start() {
+            pendingPasses.add(this);
+            for (Player player : players) {
+                boolean scheduled = plugin.scheduler().runForEntity(player, () -> {
+                    try {
+                        closeOnOwningRegion(player);
+                    } finally {
+                        countDown();
+                    }
+                }, this::countDown);
+                if (!scheduled) {
+                    countDown();
+                }
+            }
+        }
+
+        private void closeOnOwningRegion(Player player) {
+            boolean closedView;
+            long examinedAt = System.nanoTime();
+            try (ClosePassWatchdog.Session watchdog = plugin.armCloseWatchdog(reason)) {
+                closedView = closeView(player, fixEvent, watchdog);
+            }
+            cost.examined(closedView, System.nanoTime() - examinedAt);
+            if (closedView) {
+                long notifiedAt = System.nanoTime();
+                notifyPlayer(player);
+                cost.followedUp(System.nanoTime() - notifiedAt);
+            }
+        }
+
+        private void countDown() {
+            if (remaining.decrementAndGet() == 0) {
+                flush();
+            }
+        }
+
+        @Override
+        public void flush() {
+            // views still queued on their regions cannot be touched from here; Folia drops those tasks on disable
+            if (!finished.compareAndSet(false, true)) {
+                return;
+            }
+            pendingPasses.remove(this);
+            long closeElapsedNanos;
+            try (fixEvent) {
+                closeElapsedNanos = finishCloseWork(fixEvent, reason, startedAt);
+            }
+            reportClosePass(reason, startedAt, closeElapsedNanos, plan, cost, players.size());
+        }
     }
 }
@@ -0,0 +1,121 @@
+package dev.quantumfusion.zmenufix.logging;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.UUID;
+import javax.xml.parsers.DocumentBuilderFactory;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.w3c.dom.Element;
+import org.w3c.dom.NodeList;
+
+class FlightRecorderTest {
+
+    private static final int MIN_CAPACITY = 64;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void keepsOnlyTheNewestEventsAfterWrappingAround() throws Exception {
+        FlightRecorder recorder = FlightRecorder.open(directory.resolve("ring.bin"), 0L);
+        for (int index = 1; index <= 100; index++) {
+            recorder.record(FlightRecorder.EventType.CLOSE_PASS_STARTED, "event " + index);
+        }
+
+        NodeList events = dumpEvents(recorder);
+        assertEquals(MIN_CAPACITY, events.getLength());
+        for (int index = 0; index < events.getLength(); index++) {
+            Element event = (Element) events.item(index);
+            long sequence = 100L - MIN_CAPACITY + 1L + index;
+            assertEquals(Long.toString(sequence), event.getAttribute("seq"));
+            assertEquals("event " + sequence, event.getAttribute("detail"));
+        }
+    }
+
+    @Test
+    void continuesTheSequenceWhenReopened() throws Exception {
+        Path file = directory.resolve("ring.bin");
+        FlightRecorder first = FlightRecorder.open(file, 0L);
+        first.record(FlightRecorder.EventType.ZMENUFIX_ENABLED, null);
+        first.record(FlightRecorder.EventType.CLOSE_PASS_FINISHED, 3, 2_500_000L, "PluginDisableEvent");
+        first.force();
+
+        FlightRecorder reopened = FlightRecorder.open(file, 0L);
+        reopened.record(FlightRecorder.EventType.ZMENUFIX_DISABLED, null);
+
+        NodeList events = dumpEvents(reopened);
+        assertEquals(3, events.getLength());
+        Element finished = (Element) events.item(1);
+        assertEquals("CLOSE_PASS_FINISHED", finished.getAttribute("type"));
+        assertEquals("3", finished.getAttribute("count"));
+        assertEquals("2.500", finished.getAttribute("duration-ms"));
+        Element disabled = (Element) events.item(2);
+        assertEquals("3", disabled.getAttribute("seq"));
+        assertEquals("ZMENUFIX_DISABLED", disabled.getAttribute("type"));
+    }
+
+    @Test
+    void stopsRecordingOnceClosedAndKeepsWhatWasWritten() throws Exception {
+        Path file = directory.resolve("ring.bin");
+        FlightRecorder recorder = FlightRecorder.open(file, 0L);
+        recorder.record(FlightRecorder.EventType.ZMENUFIX_DISABLED, "before close");
+
+        recorder.close();
+        recorder.record(FlightRecorder.EventType.ZMENUFIX_ENABLED, "after close");
+        recorder.close();
+
+        assertFalse(recorder.enabled());
+        assertThrows(IOException.class, () -> recorder.dump(directory.resolve("closed.xml")));
+        NodeList events = dumpEvents(FlightRecorder.open(file, 0L));
+        assertEquals(1, events.getLength());
+        assertEquals("before close", ((Element) events.item(0)).getAttribute("detail"));
+    }
+
+    @Test
+    void decodesPlayerEventsAsUuid() throws Exception {
+        FlightRecorder recorder = FlightRecorder.open(directory.resolve("ring.bin"), 0L);
+        UUID uuid = UUID.randomUUID();
+        recorder.recordPlayer(FlightRecorder.EventType.PLAYER_CLOSED, uuid, "Alex");
+
+        Element event = (Element) dumpEvents(recorder).item(0);
+        assertEquals(uuid.toString(), event.getAttribute("uuid"));
+        assertEquals("Alex", event.getAttribute("detail"));
+        assertFalse(event.hasAttribute("duration-ms"));
+    }
+
+    @Test
+    void truncatesTextOnACodePointBoundary() throws Exception {
+        FlightRecorder recorder = FlightRecorder.open(directory.resolve("ring.bin"), 0L);
+        recorder.record(FlightRecorder.EventType.ZMENU_DISABLED, "é".repeat(30));
+        recorder.record(FlightRecorder.EventType.ZMENU_DISABLED, "a" + "😀".repeat(10));
+
+        NodeList events = dumpEvents(recorder);
+        String accents = ((Element) events.item(0)).getAttribute("detail");
+        assertEquals("é".repeat(11), accents);
+        String emoji = ((Element) events.item(1)).getAttribute("detail");
+        assertEquals("a" + "😀".repeat(5), emoji);
+        assertFalse(accents.contains("�") || emoji.contains("�"));
+    }
+
+    @Test
+    void refusesToDumpWhenDisabled() {
+        assertFalse(FlightRecorder.disabled().enabled());
+        assertThrows(IOException.class, () -> FlightRecorder.disabled().dump(directory.resolve("dump.xml")));
+    }
+
+    private NodeList dumpEvents(FlightRecorder recorder) throws Exception {
+        Path dump = recorder.dump(directory.resolve("dump.xml"));
+        Element root = DocumentBuilderFactory.newInstance().newDocumentBuilder().parse(dump.toFile())
+                .getDocumentElement();
+        NodeList events = root.getElementsByTagName("event");
+        assertTrue(root.hasAttribute("capacity"));
+        assertEquals(Integer.toString(events.getLength()), root.getAttribute("events"));
+        return events;
+    }
+}
@@ -0,0 +1,148 @@
+package dev.quantumfusion.zmenufix.logging.store;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import dev.quantumfusion.zmenufix.config.ZMenuFixConfiguration;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class H2HandledErrorStoreTest {
+
+    private static final Logger LOGGER = Logger.getLogger(H2HandledErrorStoreTest.class.getName());
+    private static final Duration FLUSH_DEADLINE = Duration.ofSeconds(10L);
+
+    // defaults: batches of 256, flushed every second, 90 days of retention
+    private final ZMenuFixConfiguration.DatabaseSettings settings = new ZMenuFixConfiguration.DatabaseSettings(null);
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void insertsMoreEntriesThanOneBatchHolds() throws Exception {
+        H2HandledErrorStore store = open();
+        try {
+            for (int index = 0; index < 1_000; index++) {
+                store.append(error(LocalDateTime.now(), "entry " + index));
+            }
+
+            assertTrue(store.flush(FLUSH_DEADLINE));
+            assertEquals(1_000L, count("SELECT COUNT(*) FROM handled_errors"));
+            assertEquals(1L, count("SELECT COUNT(*) FROM handled_errors WHERE message = 'entry 999'"));
+        } finally {
+            store.close();
+        }
+    }
+
+    @Test
+    void flushWaitsForEntriesAppendedBeforeIt() throws Exception {
+        H2HandledErrorStore store = open();
+        try {
+            store.append(error(LocalDateTime.now(), "first"));
+            Path spool = spool(UUID.randomUUID(), "Alex");
+            store.appendFixEvent(new FixEventRecord(LocalDateTime.now(), "PluginDisableEvent", 1, spool));
+
+            assertTrue(store.flush(FLUSH_DEADLINE));
+
+            assertEquals(1L, count("SELECT COUNT(*) FROM handled_errors"));
+            assertEquals(1L, count("SELECT COUNT(*) FROM fix_events"));
+            assertEquals(1L, count("SELECT COUNT(*) FROM fix_event_players WHERE player_name = 'Alex'"));
+            assertFalse(Files.exists(spool), "spool file should be discarded once the event is written");
+        } finally {
+            store.close();
+        }
+    }
+
+    @Test
+    void closeDrainsQueuedEntriesAndRejectsLaterOnes() throws Exception {
+        H2HandledErrorStore store = open();
+        List<Path> spools = new ArrayList<>();
+        for (int index = 0; index < 500; index++) {
+            store.append(error(LocalDateTime.now(), "entry " + index));
+            Path spool = spool(UUID.randomUUID(), "player" + index);
+            spools.add(spool);
+            store.appendFixEvent(new FixEventRecord(LocalDateTime.now(), "PluginDisableEvent", 1, spool));
+        }
+
+        store.close();
+        Path late = spool(UUID.randomUUID(), "late");
+        store.append(error(LocalDateTime.now(), "after close"));
+        store.appendFixEvent(new FixEventRecord(LocalDateTime.now(), "PluginDisableEvent", 1, late));
+
+        assertEquals(500L, count("SELECT COUNT(*) FROM handled_errors"));
+        assertEquals(500L, count("SELECT COUNT(*) FROM fix_events"));
+        assertEquals(500L, count("SELECT COUNT(*) FROM fix_event_players"));
+        assertTrue(spools.stream().noneMatch(Files::exists), "every drained spool file should be discarded");
+        assertFalse(Files.exists(late), "a rejected fix event should discard its spool file");
+    }
+
+    @Test
+    void removesEntriesOlderThanTheRetentionPeriod() throws Exception {
+        LocalDateTime expired = LocalDateTime.now().minusDays(settings.retentionDays() + 1L);
+        H2HandledErrorStore store = open();
+        store.append(error(expired, "expired"));
+        store.append(error(LocalDateTime.now(), "recent"));
+        store.appendFixEvent(new FixEventRecord(expired, "PluginDisableEvent", 1, spool(UUID.randomUUID(), "Alex")));
+        store.close();
+
+        // a freshly opened store applies retention after its first batch, so reopening guarantees a run after
+        // the entries were written; the second flush can only complete once that iteration has finished
+        H2HandledErrorStore reopened = open();
+        try {
+            assertTrue(reopened.flush(FLUSH_DEADLINE));
+            assertTrue(reopened.flush(FLUSH_DEADLINE));
+
+            assertEquals(1L, count("SELECT COUNT(*) FROM handled_errors"));
+            assertEquals(1L, count("SELECT COUNT(*) FROM handled_errors WHERE message = 'recent'"));
+            assertEquals(0L, count("SELECT COUNT(*) FROM fix_events"));
+            assertEquals(0L, count("SELECT COUNT(*) FROM fix_event_players"));
+        } finally {
+            reopened.close();
+        }
+    }
+
+    private H2HandledErrorStore open() throws Exception {
+        return new H2HandledErrorStore(databaseFile(), settings, LOGGER);
+    }
+
+    private Path databaseFile() {
+        return directory.resolve("handled-errors");
+    }
+
+    private Path spool(UUID uuid, String name) throws Exception {
+        Path spool = Files.createTempFile(directory, "fix-event-", ".part");
+        Files.write(spool, List.of(FixEventRecord.spoolLine(uuid, name)), StandardCharsets.UTF_8);
+        return spool;
+    }
+
+    private long count(String query) throws SQLException {
+        // same URL as the store so H2 shares the open database within this JVM
+        String url = "jdbc:h2:file:" + databaseFile().toAbsolutePath() + ";DB_CLOSE_ON_EXIT=FALSE";
+        try (Connection connection = DriverManager.getConnection(url);
+             Statement statement = connection.createStatement();
+             ResultSet result = statement.executeQuery(query)) {
+            assertTrue(result.next());
+            return result.getLong(1);
+        }
+    }
+
+    private static HandledError error(LocalDateTime timestamp, String message) {
+        return new HandledError(timestamp, Level.WARNING, message, null, null, null);
+    }
+}
@@ -0,0 +1,132 @@
+package dev.quantumfusion.zmenufix.logging.store;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.logging.Level;
+import javax.xml.parsers.DocumentBuilderFactory;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.NodeList;
+
+class XmlHandledErrorStoreTest {
+
+    private static final LocalDateTime TIMESTAMP = LocalDateTime.of(2024, 5, 1, 12, 30, 15, 250_000_000);
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void appendsEntriesInsideTheRootElement() throws Exception {
+        Path logFile = directory.resolve("handled-errors.xml");
+        XmlHandledErrorStore store = new XmlHandledErrorStore(logFile);
+
+        store.append(error("first & <one>"));
+        store.append(new HandledError(TIMESTAMP, Level.SEVERE, "second", "java.lang.IllegalStateException",
+                "broken \"state\"", "at example.Frame"));
+
+        Document document = parse(logFile);
+        NodeList logs = document.getDocumentElement().getElementsByTagName("log");
+        assertEquals(2, logs.getLength());
+        assertEquals("first & <one>", ((Element) logs.item(0)).getElementsByTagName("message").item(0).getTextContent());
+        Element error = (Element) ((Element) logs.item(1)).getElementsByTagName("error").item(0);
+        assertEquals("java.lang.IllegalStateException", error.getAttribute("type"));
+        assertEquals("broken \"state\"", error.getAttribute("message"));
+        assertEquals("2024-05-01 12:30:15.250", ((Element) logs.item(1)).getAttribute("timestamp"));
+        assertTrue(Files.readString(logFile).stripTrailing().endsWith("</handled-errors>"));
+    }
+
+    @Test
+    void repairsMissingRootCloseWithoutDroppingHistory() throws Exception {
+        Path logFile = directory.resolve("handled-errors.xml");
+        XmlHandledErrorStore store = new XmlHandledErrorStore(logFile);
+        store.append(error("before crash"));
+
+        // simulate a crash that cut the file right after the last entry
+        String content = Files.readString(logFile);
+        Files.writeString(logFile, content.substring(0, content.lastIndexOf("</handled-errors>")).stripTrailing());
+
+        store.append(error("after crash"));
+
+        List<String> messages = messages(parse(logFile));
+        assertEquals(List.of("before crash", "after crash"), messages);
+    }
+
+    @Test
+    void writesFixEventPlayersFromTheSpool() throws Exception {
+        Path logFile = directory.resolve("handled-errors.xml");
+        XmlHandledErrorStore store = new XmlHandledErrorStore(logFile);
+        UUID uuid = UUID.fromString("00000000-0000-0000-0000-000000000042");
+        Path spool = directory.resolve("fix.spool");
+        Files.write(spool, List.of(FixEventRecord.spoolLine(uuid, "Alex"), FixEventRecord.spoolLine(null, "Steve")),
+                StandardCharsets.UTF_8);
+
+        store.appendFixEvent(new FixEventRecord(TIMESTAMP, "PluginDisableEvent", 2, spool));
+
+        Element fix = (Element) parse(logFile).getDocumentElement().getElementsByTagName("fix").item(0);
+        assertEquals("PluginDisableEvent", fix.getAttribute("reason"));
+        assertEquals("2", fix.getAttribute("closed"));
+        NodeList players = fix.getElementsByTagName("player");
+        assertEquals(2, players.getLength());
+        assertEquals(uuid.toString(), ((Element) players.item(0)).getAttribute("uuid"));
+        assertFalse(((Element) players.item(1)).hasAttribute("uuid"));
+        assertEquals("Steve", ((Element) players.item(1)).getAttribute("name"));
+        assertFalse(Files.exists(spool), "spool file should be discarded after the append");
+    }
+
+    @Test
+    void rollsBackPartialFixEventWhenTheSpoolCannotBeRead() throws Exception {
+        Path logFile = directory.resolve("handled-errors.xml");
+        XmlHandledErrorStore store = new XmlHandledErrorStore(logFile);
+        store.append(error("kept"));
+
+        // enough valid lines to push part of the element to disk before the malformed byte is reached
+        Path spool = directory.resolve("fix.spool");
+        List<String> lines = new ArrayList<>();
+        for (int index = 0; index < 1_000; index++) {
+            lines.add(FixEventRecord.spoolLine(UUID.randomUUID(), "player" + index));
+        }
+        Files.write(spool, lines, StandardCharsets.UTF_8);
+        Files.write(spool, new byte[] {(byte) 0xFF, (byte) 0xFE, '\n'}, StandardOpenOption.APPEND);
+
+        assertThrows(IOException.class,
+                () -> store.appendFixEvent(new FixEventRecord(TIMESTAMP, "PluginDisableEvent", 1_001, spool)));
+
+        Document document = parse(logFile);
+        assertEquals(List.of("kept"), messages(document));
+        assertEquals(0, document.getDocumentElement().getElementsByTagName("fix").getLength());
+
+        store.append(error("next"));
+        assertEquals(List.of("kept", "next"), messages(parse(logFile)));
+    }
+
+    private static HandledError error(String message) {
+        return new HandledError(TIMESTAMP, Level.WARNING, message, null, null, null);
+    }
+
+    private static List<String> messages(Document document) {
+        NodeList nodes = document.getDocumentElement().getElementsByTagName("message");
+        List<String> messages = new ArrayList<>();
+        for (int index = 0; index < nodes.getLength(); index++) {
+            messages.add(nodes.item(index).getTextContent());
+        }
+        return messages;
+    }
+
+    private static Document parse(Path logFile) throws Exception {
+        return DocumentBuilderFactory.newInstance().newDocumentBuilder().parse(logFile.toFile());
+    }
+}
@@ -0,0 +1,73 @@
+package dev.quantumfusion.zmenufix.scheduler;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import org.junit.jupiter.api.Test;
+
+class MainThreadDispatcherTest {
+
+    private static final int SUBMITTERS = 4;
+    private static final int ROUNDS = 200;
+
+    @Test
+    void rejectsTasksUntilOpenedAndAfterClosing() {
+        MainThreadDispatcher.TaskQueue queue = new MainThreadDispatcher.TaskQueue();
+        assertFalse(queue.offer(() -> { }));
+
+        queue.open();
+        assertTrue(queue.offer(() -> { }));
+        assertEquals(1, queue.pending());
+
+        queue.close();
+        assertFalse(queue.offer(() -> { }));
+        assertEquals(1, queue.discard());
+        assertEquals(0, queue.pending());
+        assertNull(queue.poll());
+    }
+
+    @Test
+    void neverLosesATaskAcceptedWhileShuttingDown() throws Exception {
+        for (int round = 0; round < ROUNDS; round++) {
+            MainThreadDispatcher.TaskQueue queue = new MainThreadDispatcher.TaskQueue();
+            queue.open();
+            LongAdder accepted = new LongAdder();
+            AtomicInteger ran = new AtomicInteger();
+            CountDownLatch started = new CountDownLatch(SUBMITTERS);
+            List<Thread> submitters = new ArrayList<>();
+            for (int index = 0; index < SUBMITTERS; index++) {
+                Thread submitter = new Thread(() -> {
+                    started.countDown();
+                    while (queue.offer(ran::incrementAndGet)) {
+                        accepted.increment();
+                    }
+                });
+                submitter.start();
+                submitters.add(submitter);
+            }
+            started.await();
+
+            // the same order as MainThreadDispatcher.shutdown(): stop accepting, run what is queued, discard the rest
+            queue.close();
+            MainThreadDispatcher.QueuedTask queued;
+            while ((queued = queue.poll()) != null) {
+                queued.task().run();
+            }
+            int discarded = queue.discard();
+            for (Thread submitter : submitters) {
+                submitter.join();
+            }
+
+            assertEquals(accepted.sum(), ran.get() + discarded, "round " + round);
+            assertEquals(0, queue.pending());
+            assertNull(queue.poll(), "a task was queued after shutdown in round " + round);
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package dev.quantumfusion.zmenufix.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.jupiter.api.Test;
+
+class ClassLoaderLeakDetectorTest {
+
+    private final AtomicLong gcCycles = new AtomicLong(100L);
+    private final Set<ClassLoader> enabledLoaders = new HashSet<>();
+    private final RecordingObserver observer = new RecordingObserver();
+    private final ClassLoaderLeakDetector.Tracker tracker =
+            new ClassLoaderLeakDetector.Tracker(gcCycles::get, enabledLoaders::contains, 5);
+
+    @Test
+    void reportsOnlyAfterEnoughClassUnloadingCycles() throws Exception {
+        try (URLClassLoader loader = new URLClassLoader(new URL[0])) {
+            tracker.watch("zMenu v1", loader);
+
+            gcCycles.addAndGet(4L);
+            tracker.check(observer);
+            assertTrue(observer.events.isEmpty());
+
+            gcCycles.incrementAndGet();
+            tracker.check(observer);
+            assertEquals(List.of("leaking zMenu v1 after 5"), observer.events);
+
+            gcCycles.addAndGet(10L);
+            tracker.check(observer);
+            assertEquals(1, observer.events.size(), "a leaking loader is reported once");
+        }
+    }
+
+    @Test
+    void stopsWatchingLoadersThatAreEnabledAgain() throws Exception {
+        try (URLClassLoader loader = new URLClassLoader(new URL[0])) {
+            tracker.watch("zMenu v1", loader);
+            enabledLoaders.add(loader);
+            gcCycles.addAndGet(50L);
+
+            tracker.check(observer);
+
+            assertEquals(List.of("reenabled zMenu v1"), observer.events);
+            assertEquals(0, tracker.size());
+            assertFalse(tracker.isTracked(loader));
+        }
+    }
+
+    @Test
+    void countsOnlyCollectorsThatUnloadClasses() {
+        assertTrue(ClassLoaderLeakDetector.unloadsClasses("G1 Old Generation"));
+        assertTrue(ClassLoaderLeakDetector.unloadsClasses("G1 Concurrent GC"));
+        assertTrue(ClassLoaderLeakDetector.unloadsClasses("PS MarkSweep"));
+        assertTrue(ClassLoaderLeakDetector.unloadsClasses("ZGC Major Cycles"));
+        assertFalse(ClassLoaderLeakDetector.unloadsClasses("G1 Young Generation"));
+        assertFalse(ClassLoaderLeakDetector.unloadsClasses("PS Scavenge"));
+        assertFalse(ClassLoaderLeakDetector.unloadsClasses("Copy"));
+        assertFalse(ClassLoaderLeakDetector.unloadsClasses("ZGC Minor Cycles"));
+        assertFalse(ClassLoaderLeakDetector.unloadsClasses("Shenandoah Pauses"));
+    }
+
+    private static final class RecordingObserver implements ClassLoaderLeakDetector.Tracker.Observer {
+
+        private final List<String> events = new ArrayList<>();
+
+        @Override
+        public void collected(String label, long gcCycles) {
+            events.add("collected " + label + " after " + gcCycles);
+        }
+
+        @Override
+        public void reenabled(String label) {
+            events.add("reenabled " + label);
+        }
+
+        @Override
+        public void leaking(String label, ClassLoader loader, long gcCycles) {
+            events.add("leaking " + label + " after " + gcCycles);
+        }
+    }
+}
@@ -0,0 +1,124 @@
+package dev.quantumfusion.zmenufix.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import dev.quantumfusion.zmenufix.config.ZMenuFixConfiguration;
+import org.bukkit.configuration.MemoryConfiguration;
+import org.junit.jupiter.api.Test;
+
+class CloseStrategyPlannerTest {
+
+    private static final long MILLI = 1_000_000L;
+    private static final long MICRO = 1_000L;
+
+    // defaults with notify_players on: 2 ms dispatch budget, adaptive close, smoothing 0.3, follow-up capped at 5 ticks
+    private final ZMenuFixConfiguration.FixSettings settings = settings(true);
+
+    @Test
+    void closesImmediatelyWhenTheWholePassFitsTheHeadroom() {
+        CloseStrategyPlanner planner = new CloseStrategyPlanner(settings, () -> 40 * MILLI, false);
+
+        CloseStrategyPlanner.Plan plan = planner.plan(10);
+
+        assertEquals(CloseStrategyPlanner.Strategy.IMMEDIATE, plan.strategy());
+        assertEquals(10, plan.players());
+        assertEquals(500 * MICRO, plan.predictedCloseNanos());
+        assertEquals(700 * MICRO, plan.predictedNanos());
+    }
+
+    @Test
+    void defersOnlyTheFollowUpWhenItDoesNotFit() {
+        CloseStrategyPlanner planner = new CloseStrategyPlanner(settings, () -> 0L, false);
+        planner.record(pass(1, 1, 0L, 10 * MICRO, 100 * MICRO));
+
+        CloseStrategyPlanner.Plan plan = planner.plan(1_000);
+
+        assertEquals(CloseStrategyPlanner.Strategy.DEFERRED_FOLLOW_UP, plan.strategy());
+        assertEquals(10 * MILLI, plan.predictedCloseNanos());
+        // 100 ms of follow-up over at most 5 ticks: 20 ms slices, the last one finishing 20 ms into tick 5
+        assertEquals(20 * MILLI, plan.sliceBudgetNanos());
+        assertEquals(5 * 50 * MILLI + 20 * MILLI, plan.predictedNanos());
+    }
+
+    @Test
+    void neverDefersWhenPlayersAreNotNotified() {
+        CloseStrategyPlanner planner = new CloseStrategyPlanner(settings(false), () -> 0L, false);
+        planner.record(pass(1, 1, 0L, 10 * MICRO, 100 * MICRO));
+
+        CloseStrategyPlanner.Plan plan = planner.plan(1_000);
+
+        assertEquals(CloseStrategyPlanner.Strategy.IMMEDIATE, plan.strategy());
+        assertEquals(10 * MILLI, plan.predictedNanos());
+    }
+
+    @Test
+    void usesTheMinimumBudgetWhenHeadroomIsUnavailable() {
+        CloseStrategyPlanner planner = new CloseStrategyPlanner(settings, () -> -1L, false);
+        planner.record(pass(1, 1, 0L, 10 * MICRO, 10 * MICRO));
+
+        CloseStrategyPlanner.Plan plan = planner.plan(1_000);
+
+        assertEquals(CloseStrategyPlanner.Strategy.DEFERRED_FOLLOW_UP, plan.strategy());
+        assertEquals(-1L, plan.headroomNanos());
+        assertEquals(2 * MILLI, plan.sliceBudgetNanos());
+    }
+
+    @Test
+    void dispatchesToRegionsOnFolia() {
+        CloseStrategyPlanner planner = new CloseStrategyPlanner(settings, () -> 0L, true);
+
+        CloseStrategyPlanner.Plan plan = planner.plan(100_000);
+
+        assertEquals(CloseStrategyPlanner.Strategy.REGION_PARALLEL, plan.strategy());
+    }
+
+    @Test
+    void recordsScanCloseAndFollowUpCostsSeparately() {
+        CloseStrategyPlanner planner = new CloseStrategyPlanner(settings, () -> 0L, false);
+
+        planner.record(pass(100, 10, 2 * MICRO, 80 * MICRO, 30 * MICRO));
+
+        assertEquals(2_000.0D, planner.scanCostPerPlayerNanos(), 0.001D);
+        assertEquals(80_000.0D, planner.closeCostPerViewNanos(), 0.001D);
+        assertEquals(30_000.0D, planner.followUpCostPerViewNanos(), 0.001D);
+        assertEquals(0.1D, planner.closedRatio(), 0.0001D);
+
+        planner.record(pass(100, 20, 4 * MICRO, 40 * MICRO, 30 * MICRO));
+
+        assertEquals(0.3D * 4_000.0D + 0.7D * 2_000.0D, planner.scanCostPerPlayerNanos(), 0.001D);
+        assertEquals(0.3D * 40_000.0D + 0.7D * 80_000.0D, planner.closeCostPerViewNanos(), 0.001D);
+        assertEquals(0.3D * 0.2D + 0.7D * 0.1D, planner.closedRatio(), 0.0001D);
+    }
+
+    @Test
+    void passWithoutClosedViewsKeepsThePerViewCosts() {
+        CloseStrategyPlanner planner = new CloseStrategyPlanner(settings, () -> 0L, false);
+        planner.record(pass(10, 10, 0L, 80 * MICRO, 30 * MICRO));
+
+        planner.record(pass(500, 0, 3 * MICRO, 0L, 0L));
+
+        assertEquals(80_000.0D, planner.closeCostPerViewNanos(), 0.001D);
+        assertEquals(30_000.0D, planner.followUpCostPerViewNanos(), 0.001D);
+        assertEquals(3_000.0D, planner.scanCostPerPlayerNanos(), 0.001D);
+        assertEquals(0.3D * 0.0D + 0.7D * 1.0D, planner.closedRatio(), 0.0001D);
+    }
+
+    private static ZMenuFixConfiguration.FixSettings settings(boolean notifyPlayers) {
+        MemoryConfiguration section = new MemoryConfiguration();
+        section.set("notify_players", notifyPlayers);
+        return new ZMenuFixConfiguration.FixSettings(section);
+    }
+
+    private static CloseStrategyPlanner.PassCost pass(int examined, int closed, long scanNanos, long closeNanos,
+                                                      long followUpNanos) {
+        CloseStrategyPlanner.PassCost cost = new CloseStrategyPlanner.PassCost();
+        for (int index = 0; index < examined; index++) {
+            boolean closedView = index < closed;
+            cost.examined(closedView, closedView ? closeNanos : scanNanos);
+            if (closedView) {
+                cost.followedUp(followUpNanos);
+            }
+        }
+        return cost;
+    }
+}
@@ -0,0 +1,144 @@
+package dev.quantumfusion.zmenufix.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class ReloadTimelineTest {
+
+    private static final long MILLI = 1_000_000L;
+
+    @TempDir
+    Path directory;
+
+    private long now;
+
+    @Test
+    void reportsNearestRankPercentilesOfDowntime() {
+        ReloadTimeline timeline = new ReloadTimeline(32, () -> now);
+        for (int cycle = 1; cycle <= 10; cycle++) {
+            reload(timeline, cycle * 10L * MILLI, true);
+        }
+
+        ReloadTimeline.Distribution downtime = timeline.totalDowntime();
+        assertEquals(10, downtime.count());
+        assertEquals(50 * MILLI + MILLI / 2, downtime.percentileNanos(50.0D));
+        assertEquals(90 * MILLI + MILLI / 2, downtime.percentileNanos(90.0D));
+        assertEquals(100 * MILLI + MILLI / 2, downtime.percentileNanos(99.0D));
+        assertEquals(100 * MILLI + MILLI / 2, downtime.maxNanos());
+
+        ReloadTimeline.Distribution closePass = timeline.distribution(ReloadTimeline.Span.CLOSE_PASS);
+        assertEquals(10, closePass.count());
+        assertEquals(MILLI, closePass.maxNanos());
+        assertEquals(MILLI / 2, timeline.distribution(ReloadTimeline.Span.BRIDGE_REAPPLY).percentileNanos(50.0D));
+    }
+
+    @Test
+    void keepsOnlyTheConfiguredNumberOfCycles() {
+        ReloadTimeline timeline = new ReloadTimeline(3, () -> now);
+        for (int cycle = 1; cycle <= 5; cycle++) {
+            reload(timeline, 10 * MILLI, true);
+        }
+
+        List<ReloadTimeline.Cycle> cycles = timeline.cycles();
+        assertEquals(3, cycles.size());
+        assertEquals(3L, cycles.get(0).id());
+        assertEquals(5L, cycles.get(2).id());
+    }
+
+    @Test
+    void storesTheCycleOnlyOnceTheClosePassHasFinished() {
+        ReloadTimeline timeline = new ReloadTimeline(8, () -> now);
+        timeline.mark(ReloadTimeline.Phase.DISABLE_RECEIVED);
+        timeline.mark(ReloadTimeline.Phase.CLOSE_PASS_STARTED);
+        now += 5 * MILLI;
+        timeline.mark(ReloadTimeline.Phase.ENABLE_RECEIVED);
+        timeline.mark(ReloadTimeline.Phase.BRIDGE_REAPPLIED);
+        timeline.enableHandled();
+        assertTrue(timeline.cycles().isEmpty());
+
+        now += 5 * MILLI;
+        timeline.mark(ReloadTimeline.Phase.CLOSE_PASS_FINISHED);
+
+        assertEquals(1, timeline.cycles().size());
+        assertEquals(10 * MILLI, timeline.cycles().get(0).duration(ReloadTimeline.Span.CLOSE_PASS));
+    }
+
+    @Test
+    void flagsCyclesWhoseBridgeReapplyWasSkipped() {
+        ReloadTimeline timeline = new ReloadTimeline(8, () -> now);
+        reload(timeline, 20 * MILLI, false);
+
+        ReloadTimeline.Cycle cycle = timeline.cycles().get(0);
+        assertTrue(cycle.bridgeSkipped());
+        assertFalse(cycle.has(ReloadTimeline.Phase.BRIDGE_REAPPLIED));
+        assertEquals(20 * MILLI, cycle.totalNanos());
+        assertEquals(1, timeline.bridgeSkippedCount());
+        assertEquals(0, timeline.distribution(ReloadTimeline.Span.BRIDGE_REAPPLY).count());
+    }
+
+    @Test
+    void ignoresMarksWhenDisabled() {
+        ReloadTimeline timeline = ReloadTimeline.disabled();
+        timeline.mark(ReloadTimeline.Phase.DISABLE_RECEIVED);
+        timeline.mark(ReloadTimeline.Phase.CLOSE_PASS_FINISHED);
+        timeline.enableHandled();
+
+        assertFalse(timeline.enabled());
+        assertTrue(timeline.cycles().isEmpty());
+        assertEquals(-1L, timeline.totalDowntime().percentileNanos(50.0D));
+    }
+
+    @Test
+    void exportsEveryCycleAsTraceEvents() throws Exception {
+        ReloadTimeline timeline = new ReloadTimeline(8, () -> now);
+        reload(timeline, 30 * MILLI, true);
+        reload(timeline, 40 * MILLI, false);
+
+        Path trace = timeline.exportChromeTrace(directory.resolve("trace.json"));
+        String json = Files.readString(trace).strip();
+
+        assertTrue(json.startsWith("{\"displayTimeUnit\":\"ms\",\"traceEvents\":["));
+        assertTrue(json.endsWith("]}"));
+        for (String line : json.split("\\R")) {
+            // every array element sits on its own line; a bare separator would be an empty element
+            assertFalse(line.isBlank() || line.equals(","), "empty trace element in: " + json);
+        }
+        assertEquals(count(json, '{'), count(json, '}'));
+        assertTrue(json.contains("\"name\":\"reload #1\""));
+        assertTrue(json.contains("\"name\":\"downtime\",\"cat\":\"zmenu-reload\",\"ph\":\"X\",\"pid\":1,\"tid\":1"));
+        assertTrue(json.contains("\"dur\":30500.000}"));
+        assertTrue(json.contains("\"name\":\"downtime (bridge skipped)\""));
+        assertTrue(json.contains("\"name\":\"bridge re-applied (skipped)\""));
+        // one metadata event per cycle plus the process name
+        assertEquals(3, json.split("\"ph\":\"M\"", -1).length - 1);
+    }
+
+    private void reload(ReloadTimeline timeline, long offlineNanos, boolean bridged) {
+        timeline.mark(ReloadTimeline.Phase.DISABLE_RECEIVED);
+        long disabledAt = now;
+        timeline.mark(ReloadTimeline.Phase.BRIDGE_CLEARED);
+        now += MILLI;
+        timeline.mark(ReloadTimeline.Phase.CLOSE_PASS_STARTED);
+        now += MILLI;
+        timeline.mark(ReloadTimeline.Phase.CLOSE_PASS_FINISHED);
+        now = disabledAt + offlineNanos;
+        timeline.mark(ReloadTimeline.Phase.ENABLE_RECEIVED);
+        if (bridged) {
+            now += MILLI / 2;
+            timeline.mark(ReloadTimeline.Phase.BRIDGE_REAPPLIED);
+        }
+        timeline.enableHandled();
+        now += 1_000 * MILLI;
+    }
+
+    private static long count(String text, char character) {
+        return text.chars().filter(value -> value == character).count();
+    }
+}